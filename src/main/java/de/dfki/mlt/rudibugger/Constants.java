@@ -52,6 +52,17 @@ public class Constants {
           = GLOBAL_CONFIG_PATH.resolve("projectSpecific");
   public static String PROJECT_SPECIFIC_RUDIBUGGER_CONFIG_FILE =
           "projectConfiguration.yml";
+  public static String PROJECT_SPECIFIC_RULE_LOCATION_CACHE_FILE =
+          "RuleLoc.cache";
+  public static String PROJECT_SPECIFIC_RUDI_FILE_INDEX_FILE =
+          "RudiFiles.index";
+
+  /**
+   * Touched by the compile terminal (see VondaCompiler) when the compile
+   * command has finished, i.e. RuleLoc.yml is complete. Compile scripts run
+   * elsewhere may touch it as well.
+   */
+  public static final String RULE_LOCATION_MARKER_FILE = "RuleLoc.done";
 
 
   /* ***************************************************************************
@@ -122,6 +133,14 @@ public class Constants {
   public static final int DISCONNECTED_FROM_VONDA = 0;
 
 
+  /* ***************************************************************************
+   * RULE LOGGING
+   * **************************************************************************/
+
+  /** Default number of entries kept in the rule logging table. */
+  public static final int DEFAULT_RULE_LOGGING_CAPACITY = 100000;
+
+
   /* ***************************************************************************
    * CLOSE MODIFIED FILE
    * **************************************************************************/
@@ -192,6 +192,8 @@ public class GlobalConfiguration {
       put("automaticallyConnectToVonda", false);
       put("showErrorInfoInRuleTreeViewContextMenu", true);
       put("globalFontSize", 18);
+      put("ruleLoggingCapacity", DEFAULT_RULE_LOGGING_CAPACITY);
+      put("highResolutionTimestamps", false);
     }};
 
 
@@ -328,6 +330,33 @@ public class GlobalConfiguration {
     return 18;
   }
 
+  /**
+   * @return The maximum number of entries kept in the rule logging table,
+   * older entries are discarded
+   */
+  public int getRuleLoggingCapacity() {
+    Object capacity = _globalConfigs.get("ruleLoggingCapacity");
+    if (capacity instanceof Integer && (Integer) capacity > 0)
+      return (Integer) capacity;
+    if (capacity instanceof String) {
+      try {
+        int parsed = Integer.parseInt((String) capacity);
+        if (parsed > 0) return parsed;
+      } catch (NumberFormatException e) {
+        log.error("Illegal ruleLoggingCapacity: " + capacity);
+      }
+    }
+    return DEFAULT_RULE_LOGGING_CAPACITY;
+  }
+
+  /**
+   * @return True, if the timestamps of logged rules should be taken with
+   * System.nanoTime (high resolution), else false
+   */
+  public boolean getHighResolutionTimestamps() {
+    return Boolean.TRUE.equals(_globalConfigs.get("highResolutionTimestamps"));
+  }
+
   public String getGlobalFontSizeAsStyle() {
     return String.format("-fx-font-size: %d;", getGlobalFontSize());
   }
@@ -25,6 +25,8 @@ import static de.dfki.mlt.rudibugger.Constants.GLOBAL_PROJECT_SPECIFIC_CONFIG_PA
 import static de.dfki.mlt.rudibugger.Constants.PATH_TO_GENERATED_FOLDER;
 import static de.dfki.mlt.rudibugger.Constants.PATH_TO_RUDI_FOLDER;
 import static de.dfki.mlt.rudibugger.Constants.PROJECT_SPECIFIC_RUDIBUGGER_CONFIG_FILE;
+import static de.dfki.mlt.rudibugger.Constants.PROJECT_SPECIFIC_RUDI_FILE_INDEX_FILE;
+import static de.dfki.mlt.rudibugger.Constants.PROJECT_SPECIFIC_RULE_LOCATION_CACHE_FILE;
 import static de.dfki.mlt.rudimant.common.Configs.*;
 import static de.dfki.mlt.rudimant.common.Constants.*;
 
@@ -49,12 +51,17 @@ import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.Yaml;
 
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleLocationCache;
 import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
+import de.dfki.mlt.rudibugger.project.watchServices.RudiFolderScanner;
 import de.dfki.mlt.rudibugger.project.watchServices.RudiFolderWatch;
 import de.dfki.mlt.rudibugger.project.watchServices.RuleLocationYamlWatch;
+import de.dfki.mlt.rudibugger.view.fileTreeView.RudiFileIndex;
 import de.dfki.mlt.rudibugger.view.fileTreeView.RudiHierarchy;
 import de.dfki.mlt.rudimant.common.SimpleServer;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.MapChangeListener;
@@ -93,6 +100,9 @@ public class Project {
   /** Represents the path to the project's RuleModelStates' save folder. */
   private final Path _ruleModelStatesFolder;
 
+  /** Keeps a binary snapshot of the project's RuleLoc.yml. */
+  private final RuleLocationCache _ruleLocCache;
+
   /** Represents the project's root folder. */
   private final Path _rootFolder;
 
@@ -123,6 +133,10 @@ public class Project {
   private final ObjectProperty<RuleModel> _ruleModel
           = new SimpleObjectProperty<>(null);
 
+  /** Counts how often the rule structure has been updated in place. */
+  private final ReadOnlyIntegerWrapper _ruleModelRevision
+          = new ReadOnlyIntegerWrapper(0);
+
   /** Represents the connection to VOnDA's runtime system. */
   public VondaRuntimeConnection vonda;
 
@@ -170,12 +184,22 @@ public class Project {
     createPotentiallyMissingFolders();
     _ruleLocYaml = retrieveRuleLocYaml();
     _ruleModelStatesFolder = retrieveRuleModelStatesFolder();
+    _ruleLocCache = new RuleLocationCache(_ruleLocYaml,
+            GLOBAL_PROJECT_SPECIFIC_CONFIG_PATH.resolve(_projectName)
+                    .resolve(PROJECT_SPECIFIC_RULE_LOCATION_CACHE_FILE));
     Map rudibuggerSpecificConfigMap
             = readInRudibuggerSpecificConfigurationYaml();
     _rudibuggerSpecificConfigs
             = FXCollections.observableMap(rudibuggerSpecificConfigMap);
 
-    _rudiHierarchy = new RudiHierarchy(_rudiFolder, _ruleLocYaml);
+    /* scan the .rudi files once, watching every folder found */
+    _rudiFolderWatch = RudiFolderWatch.createRudiFolderWatch(_rudiFolder);
+    _rudiHierarchy = new RudiHierarchy(_rudiFolder, _ruleLocYaml,
+            RudiFolderScanner.scan(_rudiFolder, _rudiFolderWatch == null
+                    ? null : _rudiFolderWatch::watchFolder),
+            new RudiFileIndex(_rudiFolder,
+                    GLOBAL_PROJECT_SPECIFIC_CONFIG_PATH.resolve(_projectName)
+                    .resolve(PROJECT_SPECIFIC_RUDI_FILE_INDEX_FILE)));
     initWatches();
     compiler = new VondaCompiler(this);
     enableListeners();
@@ -185,15 +209,29 @@ public class Project {
     }
   }
 
+  /**
+   * Updates the project's rule structure after <code>RuleLoc.yml</code> has
+   * changed. An existing <code>RuleModel</code> is patched in place, so that
+   * the connection to VOnDA is kept; only if this is not possible, a new one
+   * (and a new connection) is created. The old connection is closed then.
+   */
   public final void initRuleModel() {
-    RuleModel rm = RuleModel.createRuleModel(_rudiFolder, _ruleLocYaml);
+    RuleModel current = _ruleModel.get();
+    if (current != null && current.update()) {
+      vonda.ruleModelUpdated();
+      _ruleModelRevision.set(_ruleModelRevision.get() + 1);
+      return;
+    }
+    RuleModel rm = RuleModel.createRuleModel(_rudiFolder, _ruleLocYaml,
+            _ruleLocCache);
+    if (vonda != null) vonda.closeConnection();
     vonda = new VondaRuntimeConnection(rm);
     _ruleModel.set(rm);
   }
 
   private void initWatches() {
-    _rudiFolderWatch = RudiFolderWatch.createRudiFolderWatch(
-          _rudiHierarchy, _rudiFolder);
+    if (_rudiFolderWatch != null)
+      _rudiFolderWatch.startListening(_rudiHierarchy);
     _ruleLocYamlWatch = RuleLocationYamlWatch.createRuleLocationWatch(
             this, _rudiHierarchy, getGeneratedFilesFolder());
   }
@@ -461,6 +499,14 @@ public class Project {
 
   public ObjectProperty<RuleModel> ruleModelProperty() { return _ruleModel; }
   public RuleModel getRuleModel() { return _ruleModel.get(); }
+
+  /**
+   * @return A counter incremented every time the <code>RuleModel</code> has
+   * been updated in place, i.e. without changing <code>ruleModelProperty</code>
+   */
+  public ReadOnlyIntegerProperty ruleModelRevisionProperty() {
+    return _ruleModelRevision.getReadOnlyProperty();
+  }
   public RudiHierarchy getRudiHierarchy() { return _rudiHierarchy; }
 
 
@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
@@ -109,9 +110,14 @@ public class VondaCompiler {
       _p.destroy();
     }
 
+    /* tells the RuleLocationYamlWatch that RuleLoc.yml is complete */
+    Path marker = _project.getGeneratedFilesFolder()
+            .resolve(RULE_LOCATION_MARKER_FILE);
+
     String command = "bash -c '"
           + "cd " + _project.getRootFolder().toString() + ";"
           + inputCmd + ";"
+          + "touch " + marker.toString() + ";"
           + "read -n1 -r -p \"Press any key to continue...\" key;'";
 
     log.info("Starting compilation...");
@@ -134,12 +140,26 @@ public class VondaCompiler {
         _p = Runtime.getRuntime().exec(cmd);
       } else {
         _p = Runtime.getRuntime().exec(inputCmd);
+        _p.onExit().thenRun(() -> touch(marker));
       }
     } catch (IOException ex) {
         log.error(ex.getMessage());
     }
   }
 
+  /** Creates the given file or updates its modification time. */
+  private static void touch(Path file) {
+    try {
+      if (Files.exists(file))
+        Files.setLastModifiedTime(file,
+                FileTime.fromMillis(System.currentTimeMillis()));
+      else
+        Files.createFile(file);
+    } catch (IOException ex) {
+      log.error("Could not touch " + file + ": " + ex.getMessage());
+    }
+  }
+
   /* ***************************************************************************
    * GETTERS / SETTERS
    * **************************************************************************/
@@ -19,7 +19,9 @@
 
 package de.dfki.mlt.rudibugger.project;
 
-import de.dfki.mlt.rudibugger.rpc.JavaFXLogger;
+import de.dfki.mlt.rudibugger.rpc.LogIngestionQueue;
+import de.dfki.mlt.rudibugger.rpc.LogStateSync;
+import de.dfki.mlt.rudibugger.rpc.RuleLogFormatter;
 import de.dfki.mlt.rudibugger.rpc.RudibuggerClient;
 import de.dfki.mlt.rudibugger.rpc.RudibuggerAPI;
 import de.dfki.mlt.rudibugger.rpc.LogData;
@@ -27,16 +29,18 @@ import static de.dfki.mlt.rudibugger.Constants.*;
 import de.dfki.mlt.rudibugger.DataModel;
 import de.dfki.mlt.rudibugger.HelperWindows;
 import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
-import de.dfki.mlt.rudimant.common.RuleLogger;
 import de.dfki.mlt.rudimant.common.SimpleClient;
 import de.dfki.mlt.rudimant.common.SimpleClient.ConnStatus;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.beans.value.ChangeListener;
-import javafx.collections.ObservableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +53,18 @@ public class VondaRuntimeConnection {
 
   static Logger log = LoggerFactory.getLogger(VondaRuntimeConnection.class);
 
+  /**
+   * The time to wait for VOnDA's answer to the negotiation of bulk logging
+   * states before sending them rule by rule, in ms.
+   */
+  private static final long NEGOTIATION_TIMEOUT = 1000;
+
+  /**
+   * The time rule state changes are collected before they are sent to VOnDA
+   * as one update, in ms.
+   */
+  private static final long STATE_FLUSH_DELAY = 50;
+
   /* ***************************************************************************
    * FIELDS
    * **************************************************************************/
@@ -59,15 +75,51 @@ public class VondaRuntimeConnection {
   /** A client that can connect to a server of VOnDA. */
   private RudibuggerClient _client;
 
-  /** TODO What is this? */
-  private RuleLogger rl;
+  /**
+   * Buffers formatted logs until they are handed to the JavaFX thread in
+   * batches.
+   */
+  private final LogIngestionQueue<LogData> _logQueue;
+
+  /** Formats incoming logs outside of the JavaFX thread. */
+  private final RuleLogFormatter _formatter;
+
+  /** Runs the publication of logs and the sending of state changes. */
+  private final Executor _publisher;
+
+  /**
+   * Contains the rule state changes not sent yet, only used by the
+   * publisher.
+   */
+  private final Map<Integer, Integer> _changedStates = new HashMap<>();
+
+  /** Indicates whether sending the changed states has been scheduled. */
+  private boolean _flushScheduled = false;
+
+  /** Indicates whether VOnDA agreed to send logs in the packed format. */
+  private volatile boolean _packedLogs = false;
+
+  /**
+   * Indicates whether VOnDA has not answered the negotiation of bulk logging
+   * states yet, only used by the publisher.
+   */
+  private boolean _negotiating = false;
+
+  /**
+   * Indicates whether VOnDA understands <code>setLogStats</code>, only used
+   * by the publisher.
+   */
+  private boolean _bulkStates = false;
+
+  /** Counts the established connections, only used by the publisher. */
+  private int _connections = 0;
 
-  /** TODO What is this? */
-  private JavaFXLogger jfl;
+  /** Keeps VOnDA's copy of the logging states, survives reconnects. */
+  private final LogStateSync _stateSync = new LogStateSync();
 
-  /** Contains every rule's state property and its corresponding listener. */
-  private final Map<IntegerProperty, ChangeListener> changeListenerMap
-          = new HashMap<>();
+  /** Observes the rule states while connected. */
+  private final RuleModel.RuleStateListener _ruleStateListener
+          = this::stateChanged;
 
 
   /* ***************************************************************************
@@ -78,8 +130,8 @@ public class VondaRuntimeConnection {
   private final IntegerProperty connected
           = new SimpleIntegerProperty(DISCONNECTED_FROM_VONDA);
 
-  /** Represents the most recent logged data. */
-  private final ObjectProperty<LogData> mostRecentlogOutput
+  /** Represents the most recent batch of logged data (oldest first). */
+  private final ObjectProperty<List<LogData>> mostRecentLogBatch
     = new SimpleObjectProperty<>();
 
 
@@ -91,7 +143,8 @@ public class VondaRuntimeConnection {
           -> {
     switch (nv.intValue()) {
       case CONNECTED_TO_VONDA:
-        setAllLoggingStatuses();
+        _packedLogs = false;
+        scheduleNegotiation();
         addListenersForStates();
         log.debug("Connected to VOnDA.");
         break;
@@ -114,18 +167,25 @@ public class VondaRuntimeConnection {
    * TODO
 //   * @param model  The current <code>DataModel</code>
    */
-  public VondaRuntimeConnection(RuleModel ruleModel) { _ruleModel = ruleModel; }
+  public VondaRuntimeConnection(RuleModel ruleModel) {
+    this(ruleModel, Platform::runLater);
+  }
 
   /**
-   * Initializes the internal rule logger (just defines how the view should
-   * look.
+   * Creates a connection publishing its logs with the given executor instead
+   * of the JavaFX thread, e.g. to run without a GUI.
+   *
+   * @param ruleModel
+   *        The project's rule structure
+   * @param publisher
+   *        Runs the updates of <code>logBatchProperty</code> and the sending
+   *        of rule state changes
    */
-  private void initializeRuleLogger() {
-    rl = new RuleLogger();
-    rl.setRootInfo(_ruleModel.getRootImport());
-    jfl = new JavaFXLogger();
-    rl.registerPrinter(jfl);
-    rl.logAllRules();
+  public VondaRuntimeConnection(RuleModel ruleModel, Executor publisher) {
+    _ruleModel = ruleModel;
+    _publisher = publisher;
+    _logQueue = new LogIngestionQueue<>(publisher, this::publishLogs);
+    _formatter = new RuleLogFormatter(ruleModel, _logQueue::offer);
   }
 
  /**
@@ -140,6 +200,8 @@ public class VondaRuntimeConnection {
 
     connected.addListener(connectionStateListener);
     connected.set(ESTABLISHING_CONNECTION);
+    _logQueue.start();
+    _formatter.start();
 
     _client.addPropertyChangeListener(
         e -> {
@@ -189,6 +251,8 @@ public class VondaRuntimeConnection {
 
     connected.set(DISCONNECTED_FROM_VONDA);
     connected.removeListener(connectionStateListener);
+    _formatter.stop();
+    _logQueue.stop();
 
     log.debug("RudibuggerClient has been shut down.");
   }
@@ -198,15 +262,94 @@ public class VondaRuntimeConnection {
    * METHODS
    * **************************************************************************/
 
-  /** Sends the loggingStatus of all rules to VOnDA. */
-  private void setAllLoggingStatuses() {
-    _ruleModel.idLoggingStatesMap().keySet().forEach((ruleId) -> {
-      int loggingState = _ruleModel.idLoggingStatesMap()
-              .get(ruleId).get();
-      setLoggingStatus(ruleId, loggingState);
+  /** Negotiates the protocol on the publisher. */
+  private void scheduleNegotiation() {
+    _publisher.execute(this::negotiate);
+  }
+
+  /**
+   * Negotiates the protocol with a newly connected VOnDA. The logging states
+   * are sent as soon as it is known whether VOnDA understands
+   * <code>setLogStats</code>, or after {@value #NEGOTIATION_TIMEOUT} ms
+   * without an answer. Runs on the publisher.
+   */
+  private void negotiate() {
+    RudibuggerClient client = _client;
+    if ((client == null) || (! client.isConnected())) return;
+    int connection = ++_connections;
+    _negotiating = true;
+    _bulkStates = false;
+    _stateSync.reconnected();
+    client.requestPackedLogs();
+    client.requestBulkStates();
+    CompletableFuture.delayedExecutor(NEGOTIATION_TIMEOUT,
+            TimeUnit.MILLISECONDS, _publisher).execute(() -> {
+      if (connection == _connections && _negotiating) {
+        log.debug("No answer to the negotiation of bulk logging states.");
+        statesNegotiated(false);
+      }
     });
   }
 
+  /**
+   * Called when VOnDA answered the negotiation of bulk logging states.
+   *
+   * @param supported
+   *        True, if VOnDA understands <code>setLogStats</code>
+   */
+  public void setBulkStates(boolean supported) {
+    _publisher.execute(() -> {
+      if (_negotiating) statesNegotiated(supported);
+    });
+  }
+
+  /** Sends the logging states the way VOnDA understands. */
+  private void statesNegotiated(boolean bulkStates) {
+    _negotiating = false;
+    _bulkStates = bulkStates;
+    log.debug("Logging states are sent " + (bulkStates ? "in bulk."
+            : "rule by rule."));
+    syncAllStates();
+  }
+
+  /** Brings VOnDA's copy of all logging states up to date. */
+  private void syncAllStates() {
+    if (_bulkStates) {
+      _stateSync.sync(this::sendStates, currentLoggingStates());
+    } else {
+      _stateSync.syncEach(this::setLoggingStatus, currentLoggingStates());
+    }
+  }
+
+  /** @return The current logging state of every rule */
+  private Map<Integer, Integer> currentLoggingStates() {
+    Map<Integer, Integer> states = new HashMap<>();
+    for (int ruleId : _ruleModel.getRuleIds())
+      states.put(ruleId, _ruleModel.getLoggingState(ruleId));
+    return states;
+  }
+
+  /**
+   * Called when VOnDA answered a <code>setLogStats</code> command.
+   *
+   * @param version
+   *        The version of the answered update
+   * @param accepted
+   *        False, if VOnDA did not know the base version of the update
+   */
+  public void loggingStatesAnswered(int version, boolean accepted) {
+    _publisher.execute(() -> {
+      if (accepted) _stateSync.acknowledged(this::sendStates, version);
+      else _stateSync.rejected(this::sendStates, version);
+    });
+  }
+
+  /** Sends the logging states of many rules, see {@link LogStateSync}. */
+  private void sendStates(int version, int baseVersion, List<String> runs) {
+    if ((_client != null) && (_client.isConnected()))
+      _client.setLoggingStatuses(version, baseVersion, runs);
+  }
+
   /**
    * Sets the logging state of a given rule.
    *
@@ -219,56 +362,92 @@ public class VondaRuntimeConnection {
   }
 
   /**
-   * Creates a new listener to track a changing state of a given rule. If a
-   * change occurred, this change will be sent to VOnDA immediately
-   *
-   * @param ruleId The id of the wanted rule.
+   * Collects a rule state change. It will be sent to VOnDA after
+   * {@value #STATE_FLUSH_DELAY} ms, together with all other changes that
+   * occurred in the meantime.
+   */
+  private void stateChanged(int ruleId, int state) {
+    _changedStates.put(ruleId, state);
+    if (_flushScheduled) return;
+    _flushScheduled = true;
+    CompletableFuture.delayedExecutor(STATE_FLUSH_DELAY,
+            TimeUnit.MILLISECONDS, _publisher).execute(this::flushStates);
+  }
+
+  /**
+   * Sends the collected rule state changes: as one update if VOnDA supports
+   * <code>setLogStats</code>, else rule by rule. While the protocol is being
+   * negotiated, nothing is sent: all states are sent afterwards anyway.
    */
-  private ChangeListener<Number> createRuleStateListener(int ruleId) {
-    ChangeListener<Number> cl = (o, ov, nv) ->
-      setLoggingStatus(ruleId, nv.intValue());
-    return cl;
+  private void flushStates() {
+    _flushScheduled = false;
+    if (_changedStates.isEmpty()) return;
+    Map<Integer, Integer> changes = new HashMap<>(_changedStates);
+    _changedStates.clear();
+    if ((_client == null) || (! _client.isConnected()) || _negotiating)
+      return;
+    if (_bulkStates) {
+      _stateSync.update(this::sendStates, changes);
+    } else {
+      _stateSync.updateEach(this::setLoggingStatus, changes);
+    }
   }
 
-  /** Add listeners to every rule's state property */
+  /** Starts observing the rule states. */
   private void addListenersForStates() {
-    ObservableMap<Integer, IntegerProperty> map
-            = _ruleModel.idLoggingStatesMap();
-    map.keySet().forEach((ruleId) -> {
-      ChangeListener<Number> cl = createRuleStateListener(ruleId);
-      IntegerProperty prop = map.get(ruleId);
-      prop.addListener(cl);
-      changeListenerMap.put(prop, cl);
-    });
+    _ruleModel.addRuleStateListener(_ruleStateListener);
   }
 
-  /** Remove every listener for state changes from every rule. */
+  /** Stops observing the rule states. */
   private void removeListenersForStates() {
-    changeListenerMap.keySet().forEach((prop) ->
-      prop.removeListener(changeListenerMap.get(prop)));
-    changeListenerMap.clear();
+    _ruleModel.removeRuleStateListener(_ruleStateListener);
+  }
+
+  /**
+   * Called after the RuleModel has been updated in place: brings VOnDA's
+   * copy of the logging states up to date.
+   */
+  public void ruleModelUpdated() {
+    _formatter.ruleModelChanged();
+    _publisher.execute(() -> {
+      if ((_client != null) && _client.isConnected() && ! _negotiating)
+        syncAllStates();
+    });
   }
 
   /**
    * Intermediate function that transmits data coming from VOnDA to rudibugger.
+   * The data is formatted on a worker thread and published in batches by
+   * <code>publishLogs</code>.
    *
    * @param ruleId
    * @param result
    */
   public void printLog(int ruleId, boolean[] result) {
-    /* Lazy initializing */
-    if (rl == null) {
-      initializeRuleLogger();
-    }
+    _formatter.submit(ruleId, result);
+  }
 
-    Platform.runLater(() -> {
-      rl.logRule(ruleId, result);
-      if (jfl.pendingLoggingData()) {
-        jfl.addRuleIdToLogData(ruleId);
-        mostRecentlogOutput.setValue(jfl.popContent());
-      }
-    });
+  /**
+   * Called when VOnDA agreed to send logs in the packed format.
+   *
+   * @param packed
+   *        True, if logs are sent in the packed format
+   */
+  public void setPackedLogs(boolean packed) {
+    _packedLogs = packed;
+    log.debug("VOnDA sends logs in the " + (packed ? "packed" : "text")
+            + " format.");
+  }
 
+  /**
+   * Publishes a batch of formatted logs. Runs on the JavaFX thread (or the
+   * given publisher).
+   *
+   * @param batch
+   *        The formatted logs, oldest first
+   */
+  private void publishLogs(List<LogData> batch) {
+    mostRecentLogBatch.setValue(batch);
   }
 
 
@@ -276,11 +455,24 @@ public class VondaRuntimeConnection {
    * GETTERS AND SETTERS FOR PRIVATE FIELDS AND PROPERTIES
    * **************************************************************************/
 
-  /** @return The most recent logged data */
-  public ObjectProperty<LogData> logOutputProperty() {
-    return mostRecentlogOutput;
+  /** @return The most recent batch of logged data (oldest first) */
+  public ObjectProperty<List<LogData>> logBatchProperty() {
+    return mostRecentLogBatch;
   }
 
+  /** @return The number of received logs not published yet */
+  public int getLogQueueDepth() {
+    return _formatter.getBacklog() + _logQueue.getQueueDepth();
+  }
+
+  /** @return The number of received logs dropped due to overload */
+  public long getDroppedLogs() {
+    return _formatter.getDroppedLogs() + _logQueue.getDroppedEntries();
+  }
+
+  /** @return True, if VOnDA sends logs in the packed format */
+  public boolean isPackedLogs() { return _packedLogs; }
+
   /** @return The connection status property */
   public IntegerProperty connectedProperty() { return connected; }
 
@@ -24,7 +24,7 @@ import de.dfki.mlt.rudimant.common.BasicInfo;
 import static de.dfki.mlt.rudimant.common.Constants.*;
 import de.dfki.mlt.rudimant.common.IncludeInfo;
 import java.nio.file.Path;
-import java.util.HashSet;
+import java.util.ArrayList;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import org.slf4j.Logger;
@@ -54,13 +54,23 @@ public class ImportInfoExtended extends IncludeInfo {
   private final IntegerProperty _state;
 
   /** Represents the associated file. */
-  private final Path _file;
+  private Path _file;
+
+  /** Represents the associated file, relative to the .rudi folder. */
+  private String _relativePath;
 
   /**
-   * The ruleLoggingStates of all the children of this
-   * <code>ImportInfoExtended</code> (e.g. other imports or rules).
+   * Counts how many children of this <code>ImportInfoExtended</code> (e.g.
+   * other imports or rules) are in which ruleLoggingState, see
+   * <code>countIndex</code>.
    */
-  private final HashSet<IntegerProperty> childStates = new HashSet<>();
+  private final int[] _childStateCounts = new int[7];
+
+  /** The number of observed children. */
+  private int _childCount = 0;
+
+  /** The import counting this import's state, see <code>addListener</code>. */
+  private ImportInfoExtended _observer;
 
   /** Describes whether or not this Import contains rules. */
   private boolean _containsRules;
@@ -90,9 +100,50 @@ public class ImportInfoExtended extends IncludeInfo {
       log.error("Tried to use a non-extended ImportInfo as parent.");
     _parent = parent;
     _errors = original.getErrors();
-    _state = new SimpleIntegerProperty(STATE_ALWAYS);
+    _state = createStateProperty();
 //    _model = model;
-    _file = rudiFolder.resolve(original.getFilePath()).normalize();
+    _relativePath = original.getFilePath();
+    _file = rudiFolder.resolve(_relativePath).normalize();
+  }
+
+  /**
+   * Creates an empty <code>ImportInfoExtended</code>, used to build the rule
+   * structure directly while parsing <code>RuleLoc.yml</code>. Has to be
+   * completed with <code>complete</code>.
+   *
+   * @param   parent
+   *          The parent of this Import, should already be extended.
+   */
+  ImportInfoExtended(BasicInfo parent) {
+    super();
+    _containsRules = false;
+    if (! (parent instanceof ImportInfoExtended) && (parent != null) )
+      log.error("Tried to use a non-extended ImportInfo as parent.");
+    _parent = parent;
+    _errors = new ArrayList<>();
+    _state = createStateProperty();
+  }
+
+  /**
+   * Sets the values of an import created while parsing
+   * <code>RuleLoc.yml</code>.
+   */
+  void complete(String label, int line, String filePath, Path rudiFolder) {
+    _label = label;
+    _line = line;
+    _relativePath = filePath;
+    _file = rudiFolder.resolve(filePath).normalize();
+  }
+
+
+  /** @return The state property, reporting its changes to the observer */
+  private IntegerProperty createStateProperty() {
+    IntegerProperty state = new SimpleIntegerProperty(STATE_ALWAYS);
+    state.addListener((o, ov, nv) -> {
+      if (_observer != null)
+        _observer.childStateChanged(ov.intValue(), nv.intValue());
+    });
+    return state;
   }
 
 
@@ -120,36 +171,124 @@ public class ImportInfoExtended extends IncludeInfo {
   }
 
   /**
-   * Defines a listener to listen to changes of a given BasicInfo. This
-   * BasicInfo will first be added to the children of this
-   * <code>ImportInfoExtended</code> and then a listener will be created to
-   * observe its ruleLoggingState.
+   * Starts counting the ruleLoggingState of a given BasicInfo, which should
+   * be one of the children of this <code>ImportInfoExtended</code> (or a
+   * nested rule). The BasicInfo reports every change of its state to
+   * <code>childStateChanged</code>.
    *
    * @param   bi
    *          A <code>ImportInfoExtended</code> or
    *          <code>RuleInfoExtended</code>.
    */
   public void addListener(BasicInfo bi) {
-    IntegerProperty state;
-    if (bi instanceof RuleInfoExtended)
-      state = ((RuleInfoExtended) bi).stateProperty();
-    else
-      state = ((ImportInfoExtended) bi).stateProperty();
-
-    childStates.add(state);
-    state.addListener((cl, ov, nv) -> {
-      Integer t = -1;
-      for (IntegerProperty x : childStates) {
-        if (x.getValue().equals(STATE_RULELESS)) continue;
-        if ((t == -1) | (x.getValue().equals(t))) {
-          t = x.getValue();
-        } else {
-          this.setStateProperty(STATE_PARTLY);
-          return;
-        }
-      }
-      this.setStateProperty(t);
-    });
+    int state;
+    if (bi instanceof RuleInfoExtended) {
+      ((RuleInfoExtended) bi).setObserver(this);
+      state = ((RuleInfoExtended) bi).getState();
+    } else {
+      ((ImportInfoExtended) bi).setObserver(this);
+      state = ((ImportInfoExtended) bi).getState();
+    }
+    _childCount++;
+    _childStateCounts[countIndex(state)]++;
+  }
+
+  /**
+   * Stops counting the ruleLoggingState of a given BasicInfo, e.g. because
+   * it has been removed from the rule structure. The state of this import is
+   * not updated, see <code>updateState</code>.
+   *
+   * @param   bi
+   *          A <code>ImportInfoExtended</code> or
+   *          <code>RuleInfoExtended</code> counted by this import.
+   */
+  public void removeListener(BasicInfo bi) {
+    int state;
+    if (bi instanceof RuleInfoExtended) {
+      RuleInfoExtended ri = (RuleInfoExtended) bi;
+      if (ri.getObserver() != this) return;
+      ri.setObserver(null);
+      state = ri.getState();
+    } else {
+      ImportInfoExtended ii = (ImportInfoExtended) bi;
+      if (ii._observer != this) return;
+      ii._observer = null;
+      state = ii.getState();
+    }
+    _childCount--;
+    _childStateCounts[countIndex(state)]--;
+  }
+
+  /**
+   * Called by a counted child if its ruleLoggingState has changed.
+   *
+   * @param oldState  The previous state of the child
+   * @param newState  The new state of the child
+   */
+  void childStateChanged(int oldState, int newState) {
+    _childStateCounts[countIndex(oldState)]--;
+    _childStateCounts[countIndex(newState)]++;
+    /* the parent is only notified if the derived state changes */
+    this.setStateProperty(deriveState());
+  }
+
+  /** Sets the import counting this import's state, may be null. */
+  void setObserver(ImportInfoExtended observer) { _observer = observer; }
+
+  /**
+   * Derives the state of this import again after children have been added or
+   * removed.
+   */
+  public void updateState() {
+    int state = deriveState();
+    if (state >= 0) setStateProperty(state);
+  }
+
+  /**
+   * Takes over the label, line and errors of a newer version of this import
+   * (e.g. after recompiling), without touching its children.
+   *
+   * @param   original
+   *          The newer ImportInfo retrieved from <code>VOnDA</code>.
+   */
+  public void update(IncludeInfo original) {
+    _label = original.getLabel();
+    _line = original.getLine();
+    _errors = original.getErrors();
+  }
+
+  /** @return The position of the given state's counter */
+  private static int countIndex(int state) {
+    switch (state) {
+      case STATE_ALWAYS: return 0;
+      case STATE_IF_TRUE: return 1;
+      case STATE_IF_FALSE: return 2;
+      case STATE_NEVER: return 3;
+      case STATE_PARTLY: return 4;
+      case STATE_RULELESS: return 5;
+      default: return 6;
+    }
+  }
+
+  /**
+   * Derives the state of this import from the counters of its children's
+   * states: if all children (except ruleless ones) are in the same state,
+   * this is the import's state, otherwise it is <code>STATE_PARTLY</code>.
+   *
+   * @return The derived state, or -1 if there are only ruleless children
+   */
+  private int deriveState() {
+    int relevant = _childCount - _childStateCounts[countIndex(STATE_RULELESS)];
+    if (relevant == 0) return -1;
+    if (_childStateCounts[countIndex(STATE_ALWAYS)] == relevant)
+      return STATE_ALWAYS;
+    if (_childStateCounts[countIndex(STATE_IF_TRUE)] == relevant)
+      return STATE_IF_TRUE;
+    if (_childStateCounts[countIndex(STATE_IF_FALSE)] == relevant)
+      return STATE_IF_FALSE;
+    if (_childStateCounts[countIndex(STATE_NEVER)] == relevant)
+      return STATE_NEVER;
+    return STATE_PARTLY;
   }
 
 
@@ -188,6 +327,10 @@ public class ImportInfoExtended extends IncludeInfo {
    */
   public IntegerProperty stateProperty() { return _state; }
 
+  /** @return The path of this Import, relative to the .rudi folder. */
+  @Override
+  public String getFilePath() { return _relativePath; }
+
   /** @return The absolute path of this Import. */
   public Path getAbsolutePath() { return _file; }
 
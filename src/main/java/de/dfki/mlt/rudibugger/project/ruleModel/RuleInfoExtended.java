@@ -24,6 +24,8 @@ import de.dfki.mlt.rudimant.common.BasicInfo;
 import static de.dfki.mlt.rudimant.common.Constants.*;
 import de.dfki.mlt.rudimant.common.RuleInfo;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import org.slf4j.Logger;
@@ -45,8 +47,20 @@ public class RuleInfoExtended extends RuleInfo {
    * FIELDS & PROPERTIES
    * **************************************************************************/
 
-  /** Describes how the rules of this import are being logged. */
-  private final IntegerProperty _state;
+  /** Describes how this rule is being logged. */
+  private int _stateValue = STATE_ALWAYS;
+
+  /**
+   * Represents <code>_stateValue</code> as a property, only created if
+   * requested by <code>stateProperty</code>.
+   */
+  private IntegerProperty _state;
+
+  /** The import counting this rule's state, see <code>addListener</code>. */
+  private ImportInfoExtended _observer;
+
+  /** The model to notify if the state changes, null if not registered. */
+  private RuleModel _ruleModel;
 
   /** Represents the Import containing this rule. */
   private final ImportInfoExtended _parentImport;
@@ -72,7 +86,6 @@ public class RuleInfoExtended extends RuleInfo {
     _label = original.getLabel();
     _line = original.getLine();
     _parent = parent;
-    _state = new SimpleIntegerProperty(STATE_ALWAYS);
     _id = original.getId();
     _expr = original.getExpression();
     _baseTerms = original.getBaseterms();
@@ -88,6 +101,36 @@ public class RuleInfoExtended extends RuleInfo {
 
   }
 
+  /**
+   * Creates an empty <code>RuleInfoExtended</code>, used to build the rule
+   * structure directly while parsing <code>RuleLoc.yml</code>. Has to be
+   * completed with <code>complete</code>.
+   *
+   * @param   parent
+   *          The already extended parent of this rule.
+   */
+  RuleInfoExtended(BasicInfo parent) {
+    super();
+    _parent = parent;
+    BasicInfo temp = _parent;
+    while (! (temp instanceof ImportInfoExtended)) {
+      temp = temp.getParent();
+    }
+    _parentImport = (ImportInfoExtended) temp;
+  }
+
+  /**
+   * Sets the values of a rule created while parsing <code>RuleLoc.yml</code>.
+   */
+  void complete(String label, int line, int id, String expr,
+          String[] baseTerms) {
+    _label = label;
+    _line = line;
+    _id = id;
+    _expr = expr;
+    _baseTerms = baseTerms;
+  }
+
 
   /* ***************************************************************************
    * METHODS
@@ -128,6 +171,26 @@ public class RuleInfoExtended extends RuleInfo {
   }
 
 
+  /**
+   * Takes over the label, line, expression and base terms of a newer version
+   * of this rule (e.g. after recompiling), without touching its children.
+   *
+   * @param   original
+   *          The newer RuleInfo retrieved from <code>VOnDA</code>.
+   * @return  True, if the label or the base terms (i.e. what is printed when
+   *          the rule is logged) have changed
+   */
+  public boolean update(RuleInfo original) {
+    boolean printedChanged = ! Objects.equals(_label, original.getLabel())
+        || ! Arrays.equals(_baseTerms, original.getBaseterms());
+    _label = original.getLabel();
+    _line = original.getLine();
+    _expr = original.getExpression();
+    _baseTerms = original.getBaseterms();
+    return printedChanged;
+  }
+
+
   /* ***************************************************************************
    * GETTERS & SETTERS
    * **************************************************************************/
@@ -140,7 +203,7 @@ public class RuleInfoExtended extends RuleInfo {
    * @return An Integer {@linkplain de.dfki.mlt.rudimant.common
    *         constant}.
    */
-  public int getState() { return _state.get(); }
+  public int getState() { return _stateValue; }
 
   /**
    * Sets the rule logging state of this <code>RuleInfoExtended</code>.
@@ -149,7 +212,14 @@ public class RuleInfoExtended extends RuleInfo {
    *           An Integer {@linkplain de.dfki.mlt.rudimant.common
    *           constant}.
    */
-  public void setState(int i) { _state.setValue(i); }
+  public void setState(int i) {
+    int old = _stateValue;
+    if (old == i) return;
+    _stateValue = i;
+    if (_observer != null) _observer.childStateChanged(old, i);
+    if (_ruleModel != null) _ruleModel.ruleStateChanged(_id, i);
+    if (_state != null) _state.set(i);
+  }
 
   /**
    * Sets the given Integer {@linkplain de.dfki.mlt.rudimant.common
@@ -159,13 +229,28 @@ public class RuleInfoExtended extends RuleInfo {
    *        An Integer {@linkplain de.dfki.mlt.rudimant.common
    *        constant}
    */
-  public void setStateProperty(int value) { _state.setValue(value); }
+  public void setStateProperty(int value) { setState(value); }
 
   /**
    * @return An <code>IntegerProperty</code> representing the logging state of
-   * this <code>RuleInfoExtended</code>
+   * this <code>RuleInfoExtended</code>, created on demand
    */
-  public IntegerProperty stateProperty() { return _state; }
+  public IntegerProperty stateProperty() {
+    if (_state == null) {
+      _state = new SimpleIntegerProperty(_stateValue);
+      _state.addListener((o, ov, nv) -> setState(nv.intValue()));
+    }
+    return _state;
+  }
+
+  /** Sets the import counting this rule's state, may be null. */
+  void setObserver(ImportInfoExtended observer) { _observer = observer; }
+
+  /** @return The import counting this rule's state, or null */
+  ImportInfoExtended getObserver() { return _observer; }
+
+  /** Sets the model to notify if the state changes, may be null. */
+  void setRuleModel(RuleModel ruleModel) { _ruleModel = ruleModel; }
 
   /** @return The parent <code>ImportInfoExtended</code> */
   public ImportInfoExtended getParentImport() { return _parentImport; }
@@ -0,0 +1,346 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+
+package de.dfki.mlt.rudibugger.project.ruleModel;
+
+import de.dfki.mlt.rudimant.common.BasicInfo;
+import de.dfki.mlt.rudimant.common.IncludeInfo;
+import de.dfki.mlt.rudimant.common.RuleInfo;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A compact binary snapshot of a parsed <code>RuleLoc.yml</code>, used to
+ * avoid parsing the YAML again when it has not changed since the last time.
+ *
+ * The snapshot is keyed by the size, modification time and CRC32 of the YAML
+ * file; the YAML is only hashed if its size and modification time match. The
+ * snapshot is read into memory at once. If it is missing, stale or
+ * unreadable, <code>load</code> returns null and the caller has to parse the
+ * YAML (and should <code>store</code> the result).
+ *
+ * Neither file is memory-mapped: a mapping is only released by the garbage
+ * collector, and as long as it exists, Windows refuses to replace the file.
+ *
+ * Compilation errors and warnings are not part of the snapshot because
+ * VOnDA's <code>ErrorInfo</code> can only be created by its YAML parser. If
+ * the structure contains any, no snapshot is stored.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class RuleLocationCache {
+
+  /** The logger. */
+  static Logger log = LoggerFactory.getLogger("ruleLocCache");
+
+  /** Identifies a snapshot file ("RULC"). */
+  private static final int MAGIC = 0x52554c43;
+
+  /** The version of the snapshot format. */
+  private static final int VERSION = 1;
+
+  /** Marks an import in the snapshot. */
+  private static final byte IMPORT = 0;
+
+  /** Marks a rule in the snapshot. */
+  private static final byte RULE = 1;
+
+  /** Marks an unknown hash. */
+  private static final long NO_HASH = -1;
+
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** Represents the project's RuleLoc.yml. */
+  private final Path _ruleLocYaml;
+
+  /** Represents the snapshot file. */
+  private final Path _cacheFile;
+
+  /** The key of the YAML file as it was when <code>load</code> was called. */
+  private Fingerprint _fingerprint;
+
+
+  /* ***************************************************************************
+   * SUBCLASSES
+   * **************************************************************************/
+
+  /** Identifies one version of the YAML file. */
+  private static class Fingerprint {
+
+    /** The size of the file in bytes. */
+    final long size;
+
+    /** The modification time of the file in epoch milliseconds. */
+    final long modified;
+
+    /** The CRC32 of the file's content, or NO_HASH if not computed yet. */
+    long hash = NO_HASH;
+
+    Fingerprint(long size, long modified) {
+      this.size = size;
+      this.modified = modified;
+    }
+  }
+
+  /** An import restored from the snapshot. */
+  private static class CachedImport extends IncludeInfo {
+
+    /** The file path relative to the .rudi folder. */
+    private final String _path;
+
+    CachedImport(String label, int line, String path, BasicInfo parent) {
+      _label = label;
+      _line = line;
+      _path = path;
+      _parent = parent;
+      /* snapshots are only stored without errors and warnings */
+      _errors = new ArrayList<>();
+    }
+
+    @Override
+    public String getFilePath() { return _path; }
+  }
+
+  /** A rule restored from the snapshot. */
+  private static class CachedRule extends RuleInfo {
+
+    CachedRule(String label, int line, int id, String expr,
+            String[] baseTerms, BasicInfo parent) {
+      _label = label;
+      _line = line;
+      _id = id;
+      _expr = expr;
+      _baseTerms = baseTerms;
+      _parent = parent;
+    }
+  }
+
+
+  /* ***************************************************************************
+   * CONSTRUCTOR
+   * **************************************************************************/
+
+  /**
+   * Creates a new cache.
+   *
+   * @param ruleLocYaml
+   *        The project's RuleLoc.yml
+   * @param cacheFile
+   *        The file the snapshot is stored in
+   */
+  public RuleLocationCache(Path ruleLocYaml, Path cacheFile) {
+    _ruleLocYaml = ruleLocYaml;
+    _cacheFile = cacheFile;
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /**
+   * Loads the rule structure from the snapshot, if it matches the current
+   * content of <code>RuleLoc.yml</code>.
+   *
+   * @return The rule structure, or null if the YAML has to be parsed
+   */
+  public IncludeInfo load() {
+    _fingerprint = null;
+    try {
+      BasicFileAttributes attrs = Files.readAttributes(_ruleLocYaml,
+              BasicFileAttributes.class);
+      Fingerprint fingerprint = new Fingerprint(attrs.size(),
+              attrs.lastModifiedTime().toMillis());
+      _fingerprint = fingerprint;
+      if (! Files.exists(_cacheFile)) return null;
+      ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(_cacheFile));
+      boolean matches = snapshot.remaining() >= 32
+              && snapshot.getInt() == MAGIC
+              && snapshot.getInt() == VERSION
+              && snapshot.getLong() == fingerprint.size
+              && snapshot.getLong() == fingerprint.modified;
+      if (! matches) return null;
+
+      fingerprint.hash = hash(_ruleLocYaml);
+      if (snapshot.getLong() != fingerprint.hash) return null;
+      return (IncludeInfo) readNode(snapshot, null);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not read " + _cacheFile + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Stores a snapshot of the given rule structure, keyed by the state
+   * <code>RuleLoc.yml</code> had when <code>load</code> was called.
+   *
+   * @param ruleStructure
+   *        The rule structure parsed from <code>RuleLoc.yml</code>
+   */
+  public void store(IncludeInfo ruleStructure) {
+    Fingerprint fingerprint = _fingerprint;
+    if (fingerprint == null) return;
+    if (containsErrors(ruleStructure)) {
+      log.debug("RuleLoc.yml contains errors or warnings, not cached.");
+      try {
+        Files.deleteIfExists(_cacheFile);
+      } catch (IOException e) {
+        log.warn("Could not delete " + _cacheFile + ": " + e.getMessage());
+      }
+      return;
+    }
+
+    Path temp = _cacheFile.resolveSibling(_cacheFile.getFileName() + ".tmp");
+    try {
+      if (fingerprint.hash == NO_HASH) {
+        BasicFileAttributes attrs = Files.readAttributes(_ruleLocYaml,
+                BasicFileAttributes.class);
+        long modified = attrs.lastModifiedTime().toMillis();
+        if (attrs.size() != fingerprint.size
+                || modified != fingerprint.modified) {
+          log.debug("RuleLoc.yml has changed since it was read, not cached.");
+          return;
+        }
+        fingerprint.hash = hash(_ruleLocYaml);
+      }
+      Files.createDirectories(_cacheFile.getParent());
+      try (DataOutputStream out = new DataOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(fingerprint.size);
+        out.writeLong(fingerprint.modified);
+        out.writeLong(fingerprint.hash);
+        writeNode(out, ruleStructure);
+      }
+      Files.move(temp, _cacheFile, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+      log.debug("Stored snapshot of RuleLoc.yml in " + _cacheFile);
+    } catch (IOException e) {
+      log.warn("Could not write " + _cacheFile + ": " + e.getMessage());
+    }
+  }
+
+  /** @return The CRC32 of the given file's content */
+  private static long hash(Path file) throws IOException {
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[65536];
+    try (InputStream in = Files.newInputStream(file)) {
+      for (int n; (n = in.read(buffer)) > 0; ) crc.update(buffer, 0, n);
+    }
+    return crc.getValue();
+  }
+
+  /** @return True, if any import of the given structure has errors */
+  private static boolean containsErrors(BasicInfo bi) {
+    if (bi instanceof IncludeInfo && ! ((IncludeInfo) bi).getErrors().isEmpty())
+      return true;
+    for (BasicInfo child : bi.getChildren())
+      if (containsErrors(child)) return true;
+    return false;
+  }
+
+  /** Writes a BasicInfo and its children. */
+  private static void writeNode(DataOutputStream out, BasicInfo bi)
+          throws IOException {
+    if (bi instanceof IncludeInfo) {
+      out.writeByte(IMPORT);
+      writeString(out, bi.getLabel());
+      out.writeInt(bi.getLine());
+      writeString(out, ((IncludeInfo) bi).getFilePath());
+    } else {
+      RuleInfo ri = (RuleInfo) bi;
+      out.writeByte(RULE);
+      writeString(out, ri.getLabel());
+      out.writeInt(ri.getLine());
+      out.writeInt(ri.getId());
+      writeString(out, ri.getExpression());
+      String[] baseTerms = ri.getBaseterms();
+      out.writeInt(baseTerms == null ? -1 : baseTerms.length);
+      if (baseTerms != null)
+        for (String term : baseTerms) writeString(out, term);
+    }
+    out.writeInt(bi.getChildren().size());
+    for (BasicInfo child : bi.getChildren()) writeNode(out, child);
+  }
+
+  /** Reads a BasicInfo and its children. */
+  private static BasicInfo readNode(ByteBuffer in, BasicInfo parent) {
+    BasicInfo bi;
+    byte kind = in.get();
+    if (kind == IMPORT) {
+      String label = readString(in);
+      int line = in.getInt();
+      bi = new CachedImport(label, line, readString(in), parent);
+    } else if (kind == RULE) {
+      String label = readString(in);
+      int line = in.getInt();
+      int id = in.getInt();
+      String expr = readString(in);
+      int n = in.getInt();
+      String[] baseTerms = n < 0 ? null : new String[n];
+      for (int i = 0; i < n; i++) baseTerms[i] = readString(in);
+      bi = new CachedRule(label, line, id, expr, baseTerms, parent);
+    } else {
+      throw new IllegalStateException("Corrupt snapshot");
+    }
+    int children = in.getInt();
+    for (int i = 0; i < children; i++)
+      bi.getChildren().add(readNode(in, bi));
+    return bi;
+  }
+
+  /** Writes a string that may be null. */
+  private static void writeString(DataOutputStream out, String s)
+          throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /** Reads a string that may be null. */
+  private static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0) return null;
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+}
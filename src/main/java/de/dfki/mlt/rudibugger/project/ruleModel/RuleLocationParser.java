@@ -0,0 +1,285 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+
+package de.dfki.mlt.rudibugger.project.ruleModel;
+
+import de.dfki.mlt.rudimant.common.BasicInfo;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+
+/**
+ * Reads <code>RuleLoc.yml</code> as a stream of YAML events and builds the
+ * <code>ImportInfoExtended</code> and <code>RuleInfoExtended</code> nodes
+ * directly, instead of letting VOnDA create its own objects first, which
+ * would then be copied by <code>RuleModel</code>.
+ *
+ * Nodes are recognized by their YAML tag (e.g.
+ * <code>!!de.dfki.mlt.rudimant.common.RuleInfo</code>), keys are matched
+ * without leading underscores and case. The known keys are
+ * <code>label</code>, <code>line</code>, <code>children</code>,
+ * <code>id</code>, <code>expression</code> (or <code>expr</code>),
+ * <code>baseterms</code>, <code>filepath</code> and <code>errors</code>.
+ * Compilation errors and warnings can only be created by VOnDA's parser: if
+ * the file contains any, an unknown key, a rule without id or anything else
+ * unexpected, <code>parse</code> returns null and the caller has to fall back
+ * to <code>IncludeInfo.loadInfo</code>.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public final class RuleLocationParser {
+
+  /** The logger. */
+  static Logger log = LoggerFactory.getLogger("ruleLocParser");
+
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** The YAML events of the parsed file. */
+  private final Iterator<Event> _events;
+
+  /** Represents the project's .rudi folder. */
+  private final Path _rudiFolder;
+
+
+  /* ***************************************************************************
+   * SUBCLASSES
+   * **************************************************************************/
+
+  /** Indicates content only VOnDA's parser can handle. */
+  private static class UnsupportedContentException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedContentException(String message) {
+      super(message, null, false, false);
+    }
+  }
+
+
+  /* ***************************************************************************
+   * CONSTRUCTOR
+   * **************************************************************************/
+
+  private RuleLocationParser(Iterator<Event> events, Path rudiFolder) {
+    _events = events;
+    _rudiFolder = rudiFolder;
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /**
+   * Parses <code>RuleLoc.yml</code>.
+   *
+   * @param reader
+   *        Reads the content of <code>RuleLoc.yml</code>
+   * @param rudiFolder
+   *        The project's .rudi folder
+   * @return The root of the rule structure, or null if the file has to be
+   *         parsed by VOnDA
+   * @throws org.yaml.snakeyaml.error.YAMLException
+   *         If the file is not valid YAML
+   */
+  public static ImportInfoExtended parse(Reader reader, Path rudiFolder) {
+    /* large projects easily exceed SnakeYAML's default limit of 3 MB */
+    LoaderOptions options = new LoaderOptions();
+    options.setCodePointLimit(Integer.MAX_VALUE);
+    RuleLocationParser parser = new RuleLocationParser(
+            new Yaml(options).parse(reader).iterator(), rudiFolder);
+    try {
+      return parser.parseDocument();
+    } catch (UnsupportedContentException e) {
+      log.debug("RuleLoc.yml can not be streamed: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /** @return The next event */
+  private Event next() {
+    if (! _events.hasNext())
+      throw new UnsupportedContentException("unexpected end of file");
+    return _events.next();
+  }
+
+  /** @return The root import of the document */
+  private ImportInfoExtended parseDocument() {
+    Event e = next();
+    while (e.is(Event.ID.StreamStart) || e.is(Event.ID.DocumentStart))
+      e = next();
+    if (! (e instanceof MappingStartEvent))
+      throw new UnsupportedContentException("no root import");
+    BasicInfo root = parseNode((MappingStartEvent) e, null);
+    if (! (root instanceof ImportInfoExtended))
+      throw new UnsupportedContentException("root is not an import");
+    return (ImportInfoExtended) root;
+  }
+
+  /**
+   * Parses an import or a rule and its children.
+   *
+   * @param start
+   *        The event starting the node's mapping
+   * @param parent
+   *        The already created parent, null for the root import
+   * @return The new node
+   */
+  private BasicInfo parseNode(MappingStartEvent start, BasicInfo parent) {
+    String tag = start.getTag();
+    BasicInfo node;
+    if (tag != null && tag.endsWith("RuleInfo") && parent != null)
+      node = new RuleInfoExtended(parent);
+    else if ((tag != null && (tag.endsWith("IncludeInfo")
+                              || tag.endsWith("ImportInfo")))
+             || (tag == null && parent == null))
+      node = new ImportInfoExtended(parent);
+    else
+      throw new UnsupportedContentException("unknown node " + tag);
+
+    String label = null;
+    int line = 0;
+    int id = -1;
+    String expr = null;
+    String filePath = null;
+    String[] baseTerms = null;
+
+    Event e;
+    while (! ((e = next()) instanceof MappingEndEvent)) {
+      switch (key(e)) {
+        case "label": label = scalar(next()); break;
+        case "line": line = number(next()); break;
+        case "id":
+          Event value = next();
+          if (! isNull(value)) id = number(value);
+          break;
+        case "expr":
+        case "expression": expr = scalar(next()); break;
+        case "baseterms": baseTerms = strings(next()); break;
+        case "filepath": filePath = scalar(next()); break;
+        case "children": parseChildren(next(), node); break;
+        case "errors":
+          if (! isEmpty(next()))
+            throw new UnsupportedContentException("compilation errors");
+          break;
+        default:
+          throw new UnsupportedContentException("unknown key " + key(e));
+      }
+    }
+
+    if (node instanceof RuleInfoExtended) {
+      if (id < 0)
+        throw new UnsupportedContentException("rule without valid id");
+      ((RuleInfoExtended) node).complete(label, line, id, expr, baseTerms);
+    } else {
+      if (filePath == null)
+        throw new UnsupportedContentException("import without file");
+      ((ImportInfoExtended) node).complete(label, line, filePath,
+              _rudiFolder);
+    }
+    return node;
+  }
+
+  /** Parses the sequence of children of the given node. */
+  private void parseChildren(Event e, BasicInfo node) {
+    if (isNull(e)) return;
+    if (! (e instanceof SequenceStartEvent))
+      throw new UnsupportedContentException("children are no sequence");
+    while (! ((e = next()) instanceof SequenceEndEvent)) {
+      if (! (e instanceof MappingStartEvent))
+        throw new UnsupportedContentException("child is no mapping");
+      node.getChildren().add(parseNode((MappingStartEvent) e, node));
+    }
+  }
+
+  /** @return The given key without leading underscores, in lower case */
+  private static String key(Event e) {
+    if (! (e instanceof ScalarEvent))
+      throw new UnsupportedContentException("complex key");
+    String key = ((ScalarEvent) e).getValue();
+    int i = 0;
+    while (i < key.length() && key.charAt(i) == '_') i++;
+    return key.substring(i).toLowerCase();
+  }
+
+  /** @return True, if the given event is a null scalar */
+  private static boolean isNull(Event e) {
+    if (! (e instanceof ScalarEvent)) return false;
+    ScalarEvent s = (ScalarEvent) e;
+    if (s.getScalarStyle() != DumperOptions.ScalarStyle.PLAIN) return false;
+    switch (s.getValue()) {
+      case "": case "~": case "null": case "Null": case "NULL": return true;
+      default: return false;
+    }
+  }
+
+  /** @return The value of the given scalar, may be null */
+  private static String scalar(Event e) {
+    if (! (e instanceof ScalarEvent))
+      throw new UnsupportedContentException("expected a scalar");
+    return isNull(e) ? null : ((ScalarEvent) e).getValue();
+  }
+
+  /** @return The value of the given integer scalar */
+  private static int number(Event e) {
+    String value = scalar(e);
+    try {
+      return value == null ? 0 : Integer.parseInt(value);
+    } catch (NumberFormatException ex) {
+      throw new UnsupportedContentException("not a number: " + value);
+    }
+  }
+
+  /** @return The strings of the given sequence, may be null */
+  private String[] strings(Event e) {
+    if (isNull(e)) return null;
+    if (! (e instanceof SequenceStartEvent))
+      throw new UnsupportedContentException("expected a sequence");
+    List<String> strings = new ArrayList<>();
+    while (! ((e = next()) instanceof SequenceEndEvent))
+      strings.add(scalar(e));
+    return strings.toArray(new String[strings.size()]);
+  }
+
+  /** @return True, if the given value is null or an empty sequence */
+  private boolean isEmpty(Event e) {
+    if (isNull(e)) return true;
+    if (! (e instanceof SequenceStartEvent)) return false;
+    if (next() instanceof SequenceEndEvent) return true;
+    return false;
+  }
+
+}
@@ -23,23 +23,29 @@ import static de.dfki.mlt.rudibugger.Constants.*;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.dfki.mlt.rudibugger.rpc.LogTemplate;
 import de.dfki.mlt.rudimant.common.BasicInfo;
 import de.dfki.mlt.rudimant.common.ErrorInfo;
 import de.dfki.mlt.rudimant.common.IncludeInfo;
 import de.dfki.mlt.rudimant.common.RuleInfo;
-import javafx.beans.property.IntegerProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableMap;
 
 /**
  * This class contains the data about the rule structure that is shown in
@@ -60,21 +66,47 @@ public class RuleModel {
 
   static Logger log = LoggerFactory.getLogger("RuleModel");
 
+  /** Is notified when the ruleLoggingState of a rule changes. */
+  public interface RuleStateListener {
+
+    /**
+     * @param ruleId  The id of the rule
+     * @param state   The new ruleLoggingState of the rule
+     */
+    void ruleStateChanged(int ruleId, int state);
+  }
+
   /** Represents the project's RuleLoc.yml. */
   private final Path _ruleLocYaml;
 
   /** Represents the project's .rudi folder. */
   private final Path _rudiFolder;
 
+  /** Keeps a binary snapshot of RuleLoc.yml, may be null. */
+  private final RuleLocationCache _cache;
+
   /** Maps used Paths to their respective <code>ImportInfoExtended</code>. */
-  private final Map<Path, ImportInfoExtended> _pathToImport = new HashMap<>();
+  private final Map<Path, ImportInfoExtended> _pathToImport
+          = new ConcurrentHashMap<>();
+
 
-  /** Maps rule ID's to their ruleLoggingState property. */
-  private final ObservableMap<Integer, IntegerProperty> _idLoggingStateMap
-          = FXCollections.observableMap(new LinkedHashMap<>());
+  /**
+   * Contains the rules at the position of their id (VOnDA's rule ids are
+   * small and dense), null for unknown ids.
+   */
+  private RuleInfoExtended[] _rules = new RuleInfoExtended[0];
+
+  /**
+   * Contains the precomputed strings used when logging a rule at the position
+   * of its id. Read by the thread formatting the logs, replaced when it has
+   * to grow.
+   */
+  private volatile AtomicReferenceArray<LogTemplate> _templates
+          = new AtomicReferenceArray<>(0);
 
-  /** Maps ruleIds to paths and lines. */
-  private final HashMap<Integer, RuleInfoExtended> _idRuleMap = new HashMap<>();
+  /** Are notified when the ruleLoggingState of a rule changes. */
+  private final List<RuleStateListener> _ruleStateListeners
+          = new ArrayList<>();
 
   /** Contains errors that occurred during compilation. */
   private final LinkedHashMap<ErrorInfo, ImportInfoExtended> _errorInfos
@@ -100,28 +132,127 @@ public class RuleModel {
   /** Indicates the outcome of the last compilation attempt. */
   private Integer _compilationOutcome = COMPILATION_UNDEFINED;
 
+  /** Contains the imports whose children were replaced by the last update. */
+  private List<ImportInfoExtended> _restructuredImports = new ArrayList<>();
+
 
   /* ***************************************************************************
    * INITIALIZERS, UPDATERS AND RESETTER
    * **************************************************************************/
 
   public static RuleModel createRuleModel(Path rudiFolder, Path ruleLocYaml) {
-    RuleModel rm = new RuleModel(rudiFolder, ruleLocYaml);
+    return createRuleModel(rudiFolder, ruleLocYaml, (RuleLocationCache) null);
+  }
+
+  /**
+   * Creates a <code>RuleModel</code> from <code>RuleLoc.yml</code>, using the
+   * given cache to avoid parsing the YAML if it has not changed.
+   *
+   * @param rudiFolder   The project's .rudi folder
+   * @param ruleLocYaml  The project's RuleLoc.yml
+   * @param cache        The snapshot of RuleLoc.yml, may be null
+   * @return The new <code>RuleModel</code>, or null if RuleLoc.yml could not
+   *         be read
+   */
+  public static RuleModel createRuleModel(Path rudiFolder, Path ruleLocYaml,
+          RuleLocationCache cache) {
+    RuleModel rm = new RuleModel(rudiFolder, ruleLocYaml, cache);
 
     BasicInfo basicRuleStructure = rm.readInRuleLocationFile();
     if (basicRuleStructure == null) return null;
 
-    ImportInfoExtended processedRuleStructure
-            = (ImportInfoExtended) rm.processInfos(basicRuleStructure, null);
-    rm._rootImport = processedRuleStructure;
+    return rm.init(basicRuleStructure);
+  }
+
+  /**
+   * Creates a <code>RuleModel</code> from an already loaded rule structure,
+   * e.g. a synthetic one.
+   *
+   * @param rudiFolder   The project's .rudi folder
+   * @param ruleLocYaml  The project's RuleLoc.yml
+   * @param ruleStructure  The root of the rule structure
+   * @return The new <code>RuleModel</code>
+   */
+  public static RuleModel createRuleModel(Path rudiFolder, Path ruleLocYaml,
+          IncludeInfo ruleStructure) {
+    return new RuleModel(rudiFolder, ruleLocYaml, null).init(ruleStructure);
+  }
 
-    rm.setCompilationOutcomeState();
-    return rm;
+  /**
+   * Processes the given rule structure: the subtrees of the imports are
+   * extended and indexed in parallel, then the listeners are wired on the
+   * calling thread.
+   */
+  private RuleModel init(BasicInfo basicRuleStructure) {
+    if (basicRuleStructure instanceof ImportInfoExtended) {
+      _rootImport = (ImportInfoExtended) basicRuleStructure;
+    } else {
+      _rootImport = new ImportInfoExtended((IncludeInfo) basicRuleStructure,
+              _rudiFolder, null);
+    }
+    _pathToImport.put(_rootImport.getAbsolutePath(), _rootImport);
+    ensureCapacity(maxRuleId(basicRuleStructure));
+    new ImportTask(_rootImport, basicRuleStructure).invoke();
+    wireInfos(_rootImport);
+
+    setCompilationOutcomeState();
+    return this;
   }
 
-  private RuleModel(Path rudiFolder, Path ruleLocYaml) {
+  private RuleModel(Path rudiFolder, Path ruleLocYaml,
+          RuleLocationCache cache) {
     _rudiFolder = rudiFolder;
     _ruleLocYaml = ruleLocYaml;
+    _cache = cache;
+  }
+
+  /**
+   * Reads in <code>RuleLoc.yml</code> again and patches this model in place,
+   * so that the existing <code>ImportInfoExtended</code> and
+   * <code>RuleInfoExtended</code> objects (and everything observing them)
+   * survive a recompilation.
+   *
+   * @return True, if the model has been updated, false if it has to be
+   *         created anew (e.g. <code>RuleLoc.yml</code> could not be read)
+   */
+  public boolean update() {
+    IncludeInfo ruleStructure = readInRuleLocationFile();
+    if (ruleStructure == null) return false;
+    return update(ruleStructure);
+  }
+
+  /**
+   * Patches this model in place to represent the given rule structure.
+   *
+   * The old and the new structure are compared by file path (imports) and
+   * rule id (rules). Imports and rules found in both are kept and only take
+   * over the new labels, lines, expressions and errors. If the children of an
+   * import differ, they are replaced: imports are reused if they still
+   * exist, rules are created anew but keep their ruleLoggingState. These
+   * imports can be retrieved with <code>getRestructuredImports</code>.
+   *
+   * @param ruleStructure  The root of the new rule structure
+   * @return True, if the model has been updated, false if the root import
+   *         has changed
+   */
+  public boolean update(IncludeInfo ruleStructure) {
+    Path root = _rudiFolder.resolve(ruleStructure.getFilePath()).normalize();
+    if (! root.equals(_rootImport.getAbsolutePath())) return false;
+
+    int[] states = new int[_rules.length];
+    for (int id = 0; id < _rules.length; id++)
+      states[id] = _rules[id] == null ? -1 : _rules[id].getState();
+    _restructuredImports = new ArrayList<>();
+    patchImport(_rootImport, ruleStructure, states);
+
+    _errorInfos.clear();
+    _warnInfos.clear();
+    _parsingFailure.clear();
+    collectWarnErrors(_rootImport);
+    setCompilationOutcomeState();
+    log.debug("RuleModel has been updated, " + _restructuredImports.size()
+            + " import(s) restructured.");
+    return true;
   }
 
 
@@ -160,8 +291,7 @@ public class RuleModel {
     if (current instanceof IncludeInfo) {
       ImportInfoExtended ii = new ImportInfoExtended((IncludeInfo) current,
               _rudiFolder, parent);
-      extractWarnErrors(ii);
-      _pathToImport.put(ii.getAbsolutePath(), ii);
+      registerImport(ii);
       current.getChildren().forEach((child) ->
         ii.getChildren().add(processInfos(child, ii)));
       if (parent != null)
@@ -172,10 +302,7 @@ public class RuleModel {
     else {
       RuleInfoExtended ri
               = new RuleInfoExtended((RuleInfo) current, parent);
-      if (ri.getParent() instanceof ImportInfoExtended)
-        setParentToContainsRules((ImportInfoExtended) ri.getParent());
-      _idRuleMap.put(ri.getId(), ri);
-      _idLoggingStateMap.put(ri.getId(), ri.stateProperty());
+      registerRule(ri);
       for (BasicInfo child : current.getChildren()) {
         ri.getChildren().add(processInfos(child, ri));
       }
@@ -186,19 +313,299 @@ public class RuleModel {
   }
 
   /**
-   * Reads in <code>RuleLoc.yml</code> and stores its structure.
+   * Extends (if necessary) and indexes the children of one import. Child
+   * imports are handled by forked tasks, so that large include trees are
+   * processed in parallel. Only the concurrent maps are filled, everything
+   * else is left to <code>wireInfos</code>.
+   */
+  private class ImportTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The extended import whose children are processed. */
+    private final ImportInfoExtended _import;
+
+    /** The import's original, or the import itself if already extended. */
+    private final BasicInfo _source;
+
+    ImportTask(ImportInfoExtended ii, BasicInfo source) {
+      _import = ii;
+      _source = source;
+    }
+
+    @Override
+    protected void compute() {
+      boolean extended = _source == _import;
+      List<ImportTask> subtasks = new ArrayList<>();
+      for (BasicInfo child : _source.getChildren()) {
+        if (child instanceof IncludeInfo) {
+          ImportInfoExtended ii = extended ? (ImportInfoExtended) child
+              : new ImportInfoExtended((IncludeInfo) child, _rudiFolder,
+                      _import);
+          if (! extended) _import.getChildren().add(ii);
+          _pathToImport.put(ii.getAbsolutePath(), ii);
+          subtasks.add(new ImportTask(ii, extended ? ii : child));
+        } else {
+          RuleInfoExtended ri = extended ? (RuleInfoExtended) child
+              : extendRule((RuleInfo) child, _import);
+          if (! extended) _import.getChildren().add(ri);
+          indexRule(ri);
+        }
+      }
+      invokeAll(subtasks);
+    }
+  }
+
+  /** Creates the extended version of a rule and its children. */
+  private static RuleInfoExtended extendRule(RuleInfo current,
+          BasicInfo parent) {
+    RuleInfoExtended ri = new RuleInfoExtended(current, parent);
+    for (BasicInfo child : current.getChildren())
+      ri.getChildren().add(extendRule((RuleInfo) child, ri));
+    return ri;
+  }
+
+  /**
+   * Stores a rule and its children in the arrays, which must already be
+   * large enough. Different tasks write different positions.
+   */
+  private void indexRule(RuleInfoExtended ri) {
+    _rules[ri.getId()] = ri;
+    _templates.set(ri.getId(),
+        new LogTemplate(ri.getId(), ri.getLabel(), ri.getBaseterms()));
+    ri.setRuleModel(this);
+    ri.getChildren().forEach(c -> indexRule((RuleInfoExtended) c));
+  }
+
+  /** @return The highest rule id in the given structure, or -1 */
+  private static int maxRuleId(BasicInfo bi) {
+    int max = bi instanceof RuleInfo ? ((RuleInfo) bi).getId() : -1;
+    for (BasicInfo child : bi.getChildren())
+      max = Math.max(max, maxRuleId(child));
+    return max;
+  }
+
+  /** Grows the arrays indexed by rule id to contain the given id. */
+  private void ensureCapacity(int id) {
+    if (id < _rules.length) return;
+    int length = Math.max(id + 1, _rules.length + (_rules.length >> 1));
+    _rules = Arrays.copyOf(_rules, length);
+    AtomicReferenceArray<LogTemplate> old = _templates;
+    AtomicReferenceArray<LogTemplate> templates
+            = new AtomicReferenceArray<>(length);
+    for (int i = 0; i < old.length(); i++) templates.set(i, old.get(i));
+    _templates = templates;
+  }
+
+  /**
+   * Does what <code>processInfos</code> does besides creating and indexing
+   * the nodes, in tree order: extracts warnings and errors and wires the
+   * listeners. Not thread-safe, as the listeners update JavaFX properties.
    *
-   * @param ruleLocFile the .yml file containing the map of all rules
-   * @return <code>ImportInfo</code> containing rule structure
+   * @param current Checked BasicInfo
+   */
+  private void wireInfos(BasicInfo current) {
+    if (current instanceof ImportInfoExtended) {
+      ImportInfoExtended ii = (ImportInfoExtended) current;
+      extractWarnErrors(ii);
+      ii.getChildren().forEach(this::wireInfos);
+      if (ii.getParent() != null)
+        ((ImportInfoExtended) ii.getParent()).addListener(ii);
+    } else {
+      RuleInfoExtended ri = (RuleInfoExtended) current;
+      if (ri.getParent() instanceof ImportInfoExtended)
+        setParentToContainsRules((ImportInfoExtended) ri.getParent());
+      ri.getChildren().forEach(this::wireInfos);
+      ri.getParentImport().addListener(ri);
+    }
+  }
+
+  /** Stores a new import and its warnings and errors. */
+  private void registerImport(ImportInfoExtended ii) {
+    extractWarnErrors(ii);
+    _pathToImport.put(ii.getAbsolutePath(), ii);
+  }
+
+  /** Stores a new rule, its state property and its logging template. */
+  private void registerRule(RuleInfoExtended ri) {
+    if (ri.getParent() instanceof ImportInfoExtended)
+      setParentToContainsRules((ImportInfoExtended) ri.getParent());
+    ensureCapacity(ri.getId());
+    _rules[ri.getId()] = ri;
+    _templates.set(ri.getId(),
+        new LogTemplate(ri.getId(), ri.getLabel(), ri.getBaseterms()));
+    ri.setRuleModel(this);
+  }
+
+  /**
+   * Patches an import and its children, see <code>update</code>.
+   *
+   * @param ii      The existing import
+   * @param current The new version of this import
+   * @param states  The ruleLoggingStates before the update
+   */
+  private void patchImport(ImportInfoExtended ii, BasicInfo current,
+          int[] states) {
+    ii.update((IncludeInfo) current);
+    if (! sameStructure(ii, current)) {
+      replaceChildren(ii, current, states);
+      return;
+    }
+    for (int i = 0; i < current.getChildren().size(); i++)
+      patchChild(ii.getChildren().get(i), current.getChildren().get(i), states);
+  }
+
+  /** Patches a child whose position in the structure has not changed. */
+  private void patchChild(BasicInfo old, BasicInfo current,
+          int[] states) {
+    if (old instanceof ImportInfoExtended) {
+      patchImport((ImportInfoExtended) old, current, states);
+      return;
+    }
+    RuleInfoExtended ri = (RuleInfoExtended) old;
+    if (ri.update((RuleInfo) current))
+      _templates.set(ri.getId(),
+          new LogTemplate(ri.getId(), ri.getLabel(), ri.getBaseterms()));
+    for (int i = 0; i < current.getChildren().size(); i++)
+      patchChild(ri.getChildren().get(i), current.getChildren().get(i), states);
+  }
+
+  /**
+   * Compares the children of an existing BasicInfo with the children of its
+   * new version. Imports are compared by path, rules by id and the children
+   * of rules recursively.
+   *
+   * @return True, if the children can be patched one by one
+   */
+  private boolean sameStructure(BasicInfo old, BasicInfo current) {
+    List<BasicInfo> oldChildren = old.getChildren();
+    List<BasicInfo> children = current.getChildren();
+    if (oldChildren.size() != children.size()) return false;
+    for (int i = 0; i < children.size(); i++) {
+      BasicInfo o = oldChildren.get(i);
+      BasicInfo c = children.get(i);
+      if (o instanceof ImportInfoExtended) {
+        if (! (c instanceof IncludeInfo)
+            || ! ((ImportInfoExtended) o).getAbsolutePath().equals(
+                _rudiFolder.resolve(((IncludeInfo) c).getFilePath())
+                        .normalize()))
+          return false;
+      } else {
+        if (! (c instanceof RuleInfo)
+            || ((RuleInfo) o).getId() != ((RuleInfo) c).getId()
+            || ! sameStructure(o, c))
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Replaces the children of an import by the children of its new version.
+   * Child imports that still exist are reused and patched.
+   */
+  private void replaceChildren(ImportInfoExtended ii, BasicInfo current,
+          int[] states) {
+    Map<Path, ImportInfoExtended> oldImports = new HashMap<>();
+    for (BasicInfo child : ii.getChildren()) {
+      if (child instanceof ImportInfoExtended) {
+        ImportInfoExtended childImport = (ImportInfoExtended) child;
+        ii.removeListener(childImport);
+        oldImports.put(childImport.getAbsolutePath(), childImport);
+      } else {
+        forgetRule((RuleInfoExtended) child);
+      }
+    }
+    ii.getChildren().clear();
+
+    for (BasicInfo child : current.getChildren()) {
+      ImportInfoExtended reused = null;
+      if (child instanceof IncludeInfo)
+        reused = oldImports.remove(_rudiFolder.resolve(
+            ((IncludeInfo) child).getFilePath()).normalize());
+      if (reused != null) {
+        patchImport(reused, child, states);
+        ii.getChildren().add(reused);
+        ii.addListener(reused);
+      } else {
+        BasicInfo created = processInfos(child, ii);
+        restoreStates(created, states);
+        ii.getChildren().add(created);
+      }
+    }
+    oldImports.values().forEach(this::forgetImport);
+    ii.updateState();
+    _restructuredImports.add(ii);
+  }
+
+  /** Removes a rule and its children from the maps and listeners. */
+  private void forgetRule(RuleInfoExtended ri) {
+    ri.getParentImport().removeListener(ri);
+    /* the id may already belong to a new rule */
+    if (_rules[ri.getId()] == ri) {
+      _rules[ri.getId()] = null;
+      _templates.set(ri.getId(), null);
+    }
+    ri.setRuleModel(null);
+    ri.getChildren().forEach(c -> forgetRule((RuleInfoExtended) c));
+  }
+
+  /** Removes an import and its children from the maps and listeners. */
+  private void forgetImport(ImportInfoExtended ii) {
+    _pathToImport.remove(ii.getAbsolutePath(), ii);
+    ii.getChildren().forEach(c -> {
+      if (c instanceof ImportInfoExtended) {
+        ii.removeListener(c);
+        forgetImport((ImportInfoExtended) c);
+      } else {
+        forgetRule((RuleInfoExtended) c);
+      }
+    });
+  }
+
+  /** Gives new rules the ruleLoggingState their id had before the update. */
+  private void restoreStates(BasicInfo bi, int[] states) {
+    if (bi instanceof RuleInfoExtended) {
+      int id = ((RuleInfoExtended) bi).getId();
+      if (id < states.length && states[id] >= 0)
+        ((RuleInfoExtended) bi).setState(states[id]);
+    }
+    bi.getChildren().forEach(c -> restoreStates(c, states));
+  }
+
+  /** Extracts the warnings and errors of all imports, in tree order. */
+  private void collectWarnErrors(BasicInfo bi) {
+    if (bi instanceof ImportInfoExtended)
+      extractWarnErrors((ImportInfoExtended) bi);
+    bi.getChildren().forEach(this::collectWarnErrors);
+  }
+
+  /**
+   * Reads in <code>RuleLoc.yml</code> and stores its structure. The file is
+   * streamed into extended nodes if possible, else parsed by VOnDA.
+   *
+   * @return <code>ImportInfo</code> containing rule structure, already
+   *         extended if it has been streamed
    */
   private IncludeInfo readInRuleLocationFile() {
+    if (_cache != null) {
+      IncludeInfo cached = _cache.load();
+      if (cached != null) {
+        log.debug("Read in RuleLoc.yml from its snapshot.");
+        return cached;
+      }
+    }
     IncludeInfo ii = null;
-    try {
-      File ruleLocFile = _ruleLocYaml.toFile();
-      ii = IncludeInfo.loadInfo(new FileInputStream(ruleLocFile));
-    } catch (FileNotFoundException | org.yaml.snakeyaml.error.YAMLException e) {
+    try (Reader reader = Files.newBufferedReader(_ruleLocYaml)) {
+      ii = RuleLocationParser.parse(reader, _rudiFolder);
+      if (ii == null) {
+        File ruleLocFile = _ruleLocYaml.toFile();
+        ii = IncludeInfo.loadInfo(new FileInputStream(ruleLocFile));
+      }
+    } catch (IOException | org.yaml.snakeyaml.error.YAMLException e) {
       log.error(e.getMessage());
     }
+    if (ii != null && _cache != null) _cache.store(ii);
     return ii;
   }
 
@@ -234,7 +641,64 @@ public class RuleModel {
    * @param id  Id of rule
    * @return    Requested <code>RuleInfoExtended</code>
    */
-  public RuleInfoExtended getRule(int id) { return _idRuleMap.get(id); }
+  public RuleInfoExtended getRule(int id) {
+    RuleInfoExtended[] rules = _rules;
+    return id >= 0 && id < rules.length ? rules[id] : null;
+  }
+
+  /**
+   * Gets the logging template of the rule with given id.
+   *
+   * @param id  Id of rule
+   * @return    The rule's <code>LogTemplate</code>, or null if unknown
+   */
+  public LogTemplate getLogTemplate(int id) {
+    AtomicReferenceArray<LogTemplate> templates = _templates;
+    return id >= 0 && id < templates.length() ? templates.get(id) : null;
+  }
+
+  /**
+   * Gets the ruleLoggingState of the rule with given id.
+   *
+   * @param id  Id of rule
+   * @return    The rule's ruleLoggingState, or -1 if unknown
+   */
+  public int getLoggingState(int id) {
+    RuleInfoExtended rule = getRule(id);
+    return rule == null ? -1 : rule.getState();
+  }
+
+  /** @return The ids of all rules, in ascending order */
+  public int[] getRuleIds() {
+    int n = 0;
+    for (RuleInfoExtended rule : _rules) if (rule != null) n++;
+    int[] ids = new int[n];
+    n = 0;
+    for (int id = 0; id < _rules.length; id++)
+      if (_rules[id] != null) ids[n++] = id;
+    return ids;
+  }
+
+  /**
+   * Adds a listener notified whenever the ruleLoggingState of a rule
+   * changes. Cheaper than observing every rule's state property.
+   *
+   * @param listener  The listener
+   */
+  public void addRuleStateListener(RuleStateListener listener) {
+    _ruleStateListeners.add(listener);
+  }
+
+  /** @param listener  The listener to remove */
+  public void removeRuleStateListener(RuleStateListener listener) {
+    _ruleStateListeners.remove(listener);
+  }
+
+  /** Called by a rule of this model if its ruleLoggingState has changed. */
+  void ruleStateChanged(int ruleId, int state) {
+    for (int i = 0; i < _ruleStateListeners.size(); i++)
+      _ruleStateListeners.get(i).ruleStateChanged(ruleId, state);
+  }
 
 
   /* ***************************************************************************
@@ -269,9 +733,12 @@ public class RuleModel {
   public LinkedHashMap<ErrorInfo, ImportInfoExtended>
         getParsingFailure() { return _parsingFailure; }
 
-  /** @Return ObservableMap containing the ruleLoggingStates of all rules */
-  public ObservableMap<Integer, IntegerProperty> idLoggingStatesMap() {
-    return _idLoggingStateMap;
+  /**
+   * @return The imports whose children have been replaced by the last
+   * <code>update</code>, children before their parents
+   */
+  public List<ImportInfoExtended> getRestructuredImports() {
+    return _restructuredImports;
   }
 
   /** @Return The outcome of the last compilation attempt. */
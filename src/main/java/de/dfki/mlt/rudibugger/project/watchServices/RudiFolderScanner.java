@@ -0,0 +1,203 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+
+package de.dfki.mlt.rudibugger.project.watchServices;
+
+import static de.dfki.mlt.rudimant.common.Constants.*;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans a folder for subfolders and <code>.rudi</code> files in a single pass,
+ * reading the attributes of every entry only once. Hidden files and folders
+ * (and the content of the latter) are skipped.
+ *
+ * The top-level subfolders are scanned in parallel. Every found folder can be
+ * handed to a listener before its content is read, e.g. to watch it for
+ * changes without missing files created during the scan.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class RudiFolderScanner {
+
+  /** The logger. */
+  static Logger log = LoggerFactory.getLogger("rudiFolScanner");
+
+
+  /* ***************************************************************************
+   * SUBCLASSES
+   * **************************************************************************/
+
+  /** Represents a found folder or <code>.rudi</code> file. */
+  public static class Entry {
+
+    /** The absolute path of the folder or file. */
+    public final Path path;
+
+    /** True, if this is a folder. */
+    public final boolean folder;
+
+    /** The last modification time in epoch milliseconds. */
+    public final long lastModified;
+
+    /** The size in bytes. */
+    public final long size;
+
+    /**
+     * Creates a new entry.
+     *
+     * @param path
+     *        The absolute path of the folder or file
+     * @param attrs
+     *        The attributes of the folder or file
+     */
+    public Entry(Path path, BasicFileAttributes attrs) {
+      this.path = path;
+      folder = attrs.isDirectory();
+      lastModified = attrs.lastModifiedTime().toMillis();
+      size = attrs.size();
+    }
+
+  }
+
+  /** Collects the entries of one walk. */
+  private static class Collector extends SimpleFileVisitor<Path> {
+
+    /** The folder the walk starts at. */
+    private final Path _start;
+
+    /** Collects the subfolders of the start folder instead of entering. */
+    private final List<Path> _subfolders;
+
+    /** Receives every folder before its content is read, may be null. */
+    private final Consumer<Path> _folderListener;
+
+    /** Contains the found entries, every folder before its content. */
+    private final List<Entry> _entries = new ArrayList<>();
+
+    private Collector(Path start, List<Path> subfolders,
+            Consumer<Path> folderListener) {
+      _start = start;
+      _subfolders = subfolders;
+      _folderListener = folderListener;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir,
+            BasicFileAttributes attrs) {
+      if (! dir.equals(_start)) {
+        if (isHidden(dir)) return FileVisitResult.SKIP_SUBTREE;
+        if (_subfolders != null) {
+          _subfolders.add(dir);
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+      }
+      _entries.add(new Entry(dir, attrs));
+      if (_folderListener != null) _folderListener.accept(dir);
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+      if (file.getFileName().toString().endsWith(RULE_FILE_EXTENSION)
+              && ! isHidden(file))
+        _entries.add(new Entry(file, attrs));
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException e) {
+      log.error("Could not read " + file + ": " + e);
+      return FileVisitResult.CONTINUE;
+    }
+
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /** Private nullary construct to obstruct instantiating. */
+  private RudiFolderScanner() {}
+
+  /**
+   * Decides if a file or folder is hidden. The scan and the
+   * <code>RudiFolderWatch</code> both use this, so they agree on what
+   * belongs to the hierarchy. Names starting with a dot are always hidden,
+   * otherwise the file system decides (e.g. the hidden attribute on Windows);
+   * a file that can not be accessed anymore is not hidden.
+   *
+   * @return True, if the given file or folder is hidden
+   */
+  public static boolean isHidden(Path path) {
+    if (path.getFileName().toString().startsWith(".")) return true;
+    try {
+      return Files.isHidden(path);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Scans a folder.
+   *
+   * @param folder
+   *        The absolute path of the folder to scan
+   * @param folderListener
+   *        Receives every found folder (including the given one) before its
+   *        content is read, possibly from several threads at once; may be
+   *        null
+   * @return The given folder and all found subfolders and <code>.rudi</code>
+   * files, every folder before its content
+   */
+  public static List<Entry> scan(Path folder, Consumer<Path> folderListener) {
+    List<Path> subfolders = new ArrayList<>();
+    Collector top = new Collector(folder, subfolders, folderListener);
+    walk(folder, top);
+
+    List<Entry> entries = top._entries;
+    subfolders.parallelStream()
+        .map(sub -> walk(sub, new Collector(sub, null, folderListener)))
+        .forEachOrdered(entries::addAll);
+    return entries;
+  }
+
+  /** @return The entries found by a walk starting at the given folder */
+  private static List<Entry> walk(Path folder, Collector collector) {
+    try {
+      Files.walkFileTree(folder, collector);
+    } catch (IOException e) {
+      log.error("Could not scan " + folder + ": " + e);
+    }
+    return collector._entries;
+  }
+
+}
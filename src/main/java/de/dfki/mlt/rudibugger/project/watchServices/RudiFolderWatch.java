@@ -16,7 +16,6 @@
  * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
  * IN THE SOFTWARE.
  */
-
 package de.dfki.mlt.rudibugger.project.watchServices;
 import static de.dfki.mlt.rudimant.common.Constants.*;
 
@@ -31,9 +30,11 @@ import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import javafx.application.Platform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +44,13 @@ import org.slf4j.LoggerFactory;
  * files for changes. If there are changes, a function to refresh the DataModel
  * is called.
  *
+ * Events are not passed on one by one: they are collected per path until no
+ * new event has arrived for {@value #QUIET_WINDOW_MILLIS} ms (but at most for
+ * {@value #MAX_BATCH_MILLIS} ms), reduced to the net change of every path and
+ * then applied to the <code>RudiHierarchy</code> as one batch. Several
+ * modifications caused by a single save or a checkout touching many files
+ * therefore only cause one update.
+ *
  * TODO: only needs RudiHierarchy
  *
  * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
@@ -52,6 +60,12 @@ public class RudiFolderWatch {
   /** The logger. */
   static Logger log = LoggerFactory.getLogger("rudiFolWatch");
 
+  /** The time without new events after which a batch is applied. */
+  public static final long QUIET_WINDOW_MILLIS = 100;
+
+  /** The maximum time events are collected before a batch is applied. */
+  public static final long MAX_BATCH_MILLIS = 1000;
+
 
   /* ***************************************************************************
    * FIELDS
@@ -67,70 +81,91 @@ public class RudiFolderWatch {
   private final Path _rudiFolder;
 
   /** Represents the hierarchy of all .rudi files. */
-  private final RudiHierarchy _rudiHierarchy;
+  private RudiHierarchy _rudiHierarchy;
 
   /** Maps paths to the WatchKey created when monitoring the path with watch service **/
   private final Map<Path, WatchKey> _path2WatchKeyMap;
 
+  /**
+   * Contains the collected changes of the current batch by path, only used by
+   * the watching thread.
+   */
+  private final Map<Path, PendingChange> _pendingChanges
+          = new LinkedHashMap<>();
+
+  /** When the first change of the current batch was collected (nanos). */
+  private long _batchStart;
+
+
+  /* ***************************************************************************
+   * SUBCLASSES
+   * **************************************************************************/
+
+  /** The events of one path collected during the current batch. */
+  private static class PendingChange {
+
+    /** The first event's kind, tells whether the path existed before. */
+    private final WatchEvent.Kind<?> first;
+
+    /** The last event's kind, tells whether the path exists afterwards. */
+    private WatchEvent.Kind<?> last;
+
+    private PendingChange(WatchEvent.Kind<?> kind) {
+      first = kind;
+      last = kind;
+    }
+
+    /** @return True, if the path did not exist before this batch */
+    private boolean isNew() { return first == ENTRY_CREATE; }
+
+    /** @return True, if the path does not exist after this batch */
+    private boolean isGone() { return last == ENTRY_DELETE; }
+
+  }
+
+
   /* ***************************************************************************
    * INITIALIZERS / CONSTRUCTORS
    * **************************************************************************/
 
   /** Private nullary construct to obstruct instantiating. */
-  private RudiFolderWatch(Path rudiFolder, RudiHierarchy rudiHierarchy,
-          WatchService watchService) {
-    _rudiHierarchy = rudiHierarchy;
+  private RudiFolderWatch(Path rudiFolder, WatchService watchService) {
     _watchService = watchService;
     _rudiFolder = rudiFolder;
-    _path2WatchKeyMap = new HashMap<>();
+    _path2WatchKeyMap = new ConcurrentHashMap<>();
   }
 
   /**
    * Creates the WatchService to check for changes in the <code>.rudi</code>
-   * folder.
+   * folder. The folders to watch have to be added with
+   * <code>watchFolder</code>, e.g. while scanning the <code>.rudi</code>
+   * folder, before the Watch is started.
    *
-   * @param model The current <code>DataModel</code>.
-   * @return The created WatchService
+   * @param rudiFolder The folder containing the <code>.rudi</code> files
+   * @return The created Watch, or null
    */
-  public static RudiFolderWatch createRudiFolderWatch(
-          RudiHierarchy rudiHierarchy, Path rudiFolder) {
-    RudiFolderWatch newWatch = null;
+  public static RudiFolderWatch createRudiFolderWatch(Path rudiFolder) {
     try {
       WatchService watchService = FileSystems.getDefault().newWatchService();
-
-      newWatch = new RudiFolderWatch(rudiFolder, rudiHierarchy, watchService);
-      recursivelyRegisterPath(rudiFolder, newWatch);
-      newWatch.startListening();
+      return new RudiFolderWatch(rudiFolder, watchService);
     } catch (IOException e) {
       log.error("Could not register WatchService: " + e);
       return null;
     }
-    return newWatch;
   }
 
-  private static void recursivelyRegisterPath(Path path, RudiFolderWatch rfw) throws IOException {
-    WatchKey key = path.register(rfw._watchService, ENTRY_MODIFY, ENTRY_CREATE, ENTRY_DELETE);
-    rfw._path2WatchKeyMap.put(path, key);
-    if (!rfw._rudiHierarchy.isFileInHierarchy(path)) {
-      rfw._rudiHierarchy.addFileToHierarchy(path);
-    }
-    try (Stream<Path> subpaths = Files.walk(path)) {
-      subpaths.forEach(x -> {
-        try {
-          if (Files.isDirectory(x)) {
-            WatchKey xKey = x.register(rfw._watchService, ENTRY_MODIFY, ENTRY_CREATE, ENTRY_DELETE);
-            rfw._path2WatchKeyMap.put(x, xKey);
-            if (!rfw._rudiHierarchy.isFileInHierarchy(x)) {
-              rfw._rudiHierarchy.addFileToHierarchy(x);
-            }
-          } else if (x.getFileName().toString().endsWith(RULE_FILE_EXTENSION)
-              && !rfw._rudiHierarchy.isFileInHierarchy(x)) {
-            rfw._rudiHierarchy.addFileToHierarchy(x);
-          }
-        } catch (IOException ex) {
-          log.error("Could not set watch for subdirectories: " + ex);
-        }
-      });
+  /**
+   * Watches a given folder (but not its subfolders) for changes. May be
+   * called from several threads at once.
+   *
+   * @param folder The folder to watch
+   */
+  public void watchFolder(Path folder) {
+    try {
+      WatchKey key = folder.register(_watchService, ENTRY_MODIFY, ENTRY_CREATE, ENTRY_DELETE);
+      _path2WatchKeyMap.put(folder, key);
+    } catch (IOException ex) {
+      log.error("Could not set watch for subdirectories: " + ex);
     }
   }
 
@@ -157,8 +192,14 @@ public class RudiFolderWatch {
    * METHODS
    * **************************************************************************/
 
-  /** Starts listening for folder changes. */
-  private void startListening() {
+  /**
+   * Starts listening for folder changes. Changes that happened since the
+   * folders have been registered are not lost.
+   *
+   * @param rudiHierarchy The hierarchy to apply the changes to
+   */
+  public void startListening(RudiHierarchy rudiHierarchy) {
+    _rudiHierarchy = rudiHierarchy;
     watchingTread = new Thread() {
       @Override
       public void run() {
@@ -191,54 +232,97 @@ public class RudiFolderWatch {
 
   public void eventLoop() throws IOException, InterruptedException {
 
-    WatchKey rudiKey;
-    while ((rudiKey = _watchService.take()) != null) {
+    for (;;) {
+      WatchKey rudiKey;
+
+      /* nothing collected: wait for the next event */
+      if (_pendingChanges.isEmpty()) {
+        rudiKey = _watchService.take();
+      }
+
+      /* wait for the quiet window to pass, but not longer than allowed */
+      else {
+        long left = MAX_BATCH_MILLIS - TimeUnit.NANOSECONDS.toMillis(
+                System.nanoTime() - _batchStart);
+        rudiKey = left <= 0 ? null : _watchService.poll(
+                Math.min(QUIET_WINDOW_MILLIS, left), TimeUnit.MILLISECONDS);
+        if (rudiKey == null) {
+          publishChanges();
+          continue;
+        }
+      }
+
       for (WatchEvent<?> event : rudiKey.pollEvents()) {
+        if (event.kind() == OVERFLOW) {
+          log.warn("Too many changes at once, some may have been missed.");
+          continue;
+        }
         Path eventPath = ((Path)rudiKey.watchable()).resolve(((WatchEvent<Path>) event).context());
+        // hidden files and folders are never part of the hierarchy
+        if (RudiFolderScanner.isHidden(eventPath)) continue;
         if (event.kind() == ENTRY_DELETE) {
           if (_path2WatchKeyMap.containsKey(eventPath)) {
             // only folders have keys, so a folder was deleted
             unregisterStaleWatches(this);
-            _rudiHierarchy.removeObsoleteFolders();
+            collectChange(eventPath, ENTRY_DELETE);
           } else if (eventPath.getFileName().toString().endsWith(RULE_FILE_EXTENSION)) {
             // rudi file was deleted
-            Platform.runLater(
-                () -> {
-                  _rudiHierarchy.removeFromFileHierarchy(eventPath);
-                  log.info("rudi file deleted: " + eventPath);
-                });
+            collectChange(eventPath, ENTRY_DELETE);
           }
         } else if (event.kind() == ENTRY_CREATE) {
           if (Files.isDirectory(eventPath)) {
-            // folder created
-            recursivelyRegisterPath(eventPath, this);
+            // folder created, its content may already exist
+            for (RudiFolderScanner.Entry x
+                    : RudiFolderScanner.scan(eventPath, this::watchFolder)) {
+              collectChange(x.path, ENTRY_CREATE);
+            }
             log.debug("Started watching new folder: " + eventPath);
-          } else if (eventPath.getFileName().toString().endsWith(RULE_FILE_EXTENSION)
-              && ! Files.isHidden(eventPath)) {
+          } else if (eventPath.getFileName().toString().endsWith(RULE_FILE_EXTENSION)) {
             // rudi file created
-            Platform.runLater(
-                () -> {
-                  if (_rudiHierarchy.isFileInHierarchy(eventPath)) {
-                    log.info("rudi file has been modified : " + eventPath);
-                  } else {
-                    _rudiHierarchy.addFileToHierarchy(eventPath);
-                    log.info("rudi file added: " + eventPath);
-                  }
-                  _rudiHierarchy.setFileAsModified(eventPath);
-                });
+            collectChange(eventPath, ENTRY_CREATE);
           }
-        } else if (event.kind() == ENTRY_MODIFY && Files.exists(eventPath)
-            && !Files.isDirectory(eventPath)
-            && eventPath.getFileName().toString().endsWith(RULE_FILE_EXTENSION)) {
+        } else if (event.kind() == ENTRY_MODIFY
+            && eventPath.getFileName().toString().endsWith(RULE_FILE_EXTENSION)
+            && !Files.isDirectory(eventPath)) {
           // rudi file modified, we don't care about modified folders
-          Platform.runLater(
-              () -> {
-                log.info("rudi file has been modified : " + eventPath);
-                _rudiHierarchy.setFileAsModified(eventPath);
-              });
+          collectChange(eventPath, ENTRY_MODIFY);
         }
-       }
+      }
       rudiKey.reset();
     }
   }
+
+  /** Adds an event to the current batch. */
+  private void collectChange(Path path, WatchEvent.Kind<?> kind) {
+    if (_pendingChanges.isEmpty()) _batchStart = System.nanoTime();
+    PendingChange change = _pendingChanges.get(path);
+    if (change == null) _pendingChanges.put(path, new PendingChange(kind));
+    else change.last = kind;
+  }
+
+  /**
+   * Reduces the collected events to one net change per path and applies them
+   * to the <code>RudiHierarchy</code> on the JavaFX thread.
+   */
+  private void publishChanges() {
+    Set<Path> added = new HashSet<>();
+    Set<Path> removed = new HashSet<>();
+    Set<Path> modified = new HashSet<>();
+    _pendingChanges.forEach((path, change) -> {
+      if (change.isNew()) {
+        if (! change.isGone()) added.add(path);
+      } else if (change.isGone()) {
+        removed.add(path);
+      } else {
+        modified.add(path);
+      }
+    });
+    _pendingChanges.clear();
+    if (added.isEmpty() && removed.isEmpty() && modified.isEmpty()) return;
+
+    log.debug("Applying changes: " + added.size() + " added, "
+            + removed.size() + " removed, " + modified.size() + " modified.");
+    Platform.runLater(
+        () -> _rudiHierarchy.applyChanges(added, removed, modified));
+  }
 }
@@ -19,17 +19,20 @@
 
 package de.dfki.mlt.rudibugger.project.watchServices;
 import static de.dfki.mlt.rudimant.common.Constants.*;
+import static de.dfki.mlt.rudibugger.Constants.RULE_LOCATION_MARKER_FILE;
 
 import de.dfki.mlt.rudibugger.view.fileTreeView.RudiHierarchy;
 import de.dfki.mlt.rudibugger.project.Project;
 import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
 import java.io.IOException;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import static java.nio.file.StandardWatchEventKinds.*;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.concurrent.TimeUnit;
 import javafx.application.Platform;
 import org.slf4j.Logger;
@@ -39,6 +42,18 @@ import org.slf4j.LoggerFactory;
  * This Watch's purpose is to check if the <code>RuleLocation.yml</code> file
  * is being changed. If it is, a function to refresh the DataModel is called.
  *
+ * The refresh starts as soon as the file is known to be complete:
+ *  - if the file has been moved into place (it appears without being
+ *    written to and its size and modification time do not change for
+ *    {@value #SETTLE_MILLIS} ms) or
+ *  - if the marker file <code>RuleLoc.done</code> is created or touched in
+ *    the same folder after the file changed. <code>VondaCompiler</code>
+ *    touches it when the compile command has finished; a marker without a
+ *    change of the file (e.g. after a failed compilation) is ignored.
+ * Otherwise, the file is considered complete if it has not been written to
+ * for {@value #DEBOUNCE_MILLIS} ms. Changes of other files in the folder are
+ * ignored.
+ *
  * TODO: only needs RuleModel (and RudiHierachy?)
  * updating the RuleModel could also update the hierarchy internally
  *
@@ -49,6 +64,27 @@ public class RuleLocationYamlWatch {
   /** The logger. */
   static Logger log = LoggerFactory.getLogger("ruleLocWatch");
 
+  /** The time without writes after which the file is considered complete. */
+  public static final long DEBOUNCE_MILLIS = 500;
+
+  /**
+   * The time a file that appeared without being written to is observed
+   * before it is considered to have been moved into place.
+   */
+  public static final long SETTLE_MILLIS = 50;
+
+  /** Nothing relevant happened. */
+  private static final int NONE = 0;
+
+  /** The file appeared without being written to. */
+  private static final int CREATED = 1;
+
+  /** The file has been written to. */
+  private static final int WRITTEN = 2;
+
+  /** The marker file has been created or touched. */
+  private static final int COMPLETED = 3;
+
 
   /* ***************************************************************************
    * FIELDS
@@ -60,13 +96,13 @@ public class RuleLocationYamlWatch {
   /** The corresponding WatchService. */
   private WatchService _watchService;
 
-  /** This Path contains the currently modified file. */
-  private Path changingFile;
+  /** Represents the folder containing the <code>RuleLoc.yml</code>. */
+  private final Path _folder;
 
 //  /** Represents the rule structure of the observed project. */
 //  private final RuleModel _ruleModel;
 
-  /** TODO */
+  /** The project whose rule model is reloaded. */
   private final Project _project;
 
   /** Represents the hierarchy of all .rudi files. */
@@ -78,8 +114,10 @@ public class RuleLocationYamlWatch {
    * **************************************************************************/
 
   private RuleLocationYamlWatch(Project project,
-          RudiHierarchy rudiHierarchy, WatchService watchService) {
+          RudiHierarchy rudiHierarchy, WatchService watchService,
+          Path folder) {
 //    _ruleModel = ruleModel;
+    _folder = folder;
     _rudiHierarchy = rudiHierarchy;
     _watchService = watchService;
     _project = project;
@@ -107,7 +145,8 @@ public class RuleLocationYamlWatch {
     }
 
     RuleLocationYamlWatch newWatch
-        = new RuleLocationYamlWatch(project, rudiHierarchy, watchService);
+        = new RuleLocationYamlWatch(project, rudiHierarchy, watchService,
+                generatedFilesFolder);
     newWatch.startListening();
     return newWatch;
   }
@@ -150,83 +189,133 @@ public class RuleLocationYamlWatch {
 
   public void eventLoop() throws IOException, InterruptedException {
 
-    /* this is necessary to avoid take() and be able to use poll() */
-    boolean ruleLocationFileChanged = false;
-
     for (;;) {
 
+      /* wait until RuleLoc.yml is changing */
       WatchKey watchKey;
+      try {
+        watchKey = _watchService.take();
+      } catch (InterruptedException ex) {
+        log.error(ex.toString());
+        return;
+      }
+      int signal = readEvents(watchKey, false);
+      if (signal == NONE) continue;
 
-      /* if no file change has been detected */
-      if (! ruleLocationFileChanged) {
-        try {
-          watchKey = _watchService.take();
-        } catch (InterruptedException ex) {
-          log.error(ex.toString());
+      /* wait until it is complete */
+      if (signal != COMPLETED) awaitCompletion(signal);
+
+      Platform.runLater(() -> {
+        log.debug("[" + RULE_LOCATION_FILE + "] has changed.");
+        _project.initRuleModel();
+        _rudiHierarchy.setFilesUpToDate();
+      });
+    }
+  }
+
+  /**
+   * Waits until the <code>RuleLoc.yml</code> is complete, or until it has not
+   * been written to for a while. Changes of other files do not prolong the
+   * waiting.
+   *
+   * @param signal
+   *        What happened to the file so far, <code>CREATED</code> or
+   *        <code>WRITTEN</code>
+   */
+  private void awaitCompletion(int signal) throws InterruptedException {
+    long deadline = deadline(signal);
+    String settled = signal == CREATED ? fileState() : null;
+    for (;;) {
+      long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      WatchKey watchKey = left <= 0 ? null
+              : _watchService.poll(left, TimeUnit.MILLISECONDS);
+
+      /* nothing more has happened */
+      if (watchKey == null) {
+        if (signal == WRITTEN) {
+          log.debug("[" + RULE_LOCATION_FILE + "] is complete.");
           return;
         }
-
-        /* identify what has happened */
-        for (WatchEvent<?> event : watchKey.pollEvents()) {
-          WatchEvent.Kind<?> kind = event.kind();
-          WatchEvent<Path> ev = (WatchEvent<Path>) event;
-          changingFile = ev.context();
-
-          /* is RuleLoc.yml changing? */
-          if ((kind == ENTRY_CREATE || kind == ENTRY_MODIFY)
-                  && changingFile.getFileName().toString()
-                              .equals(RULE_LOCATION_FILE)) {
-            ruleLocationFileChanged = true;
-            log.debug("[" + changingFile + "] is being modified / created.");
-          }
+        String state = fileState();
+        if (state != null && state.equals(settled)) {
+          log.debug("[" + RULE_LOCATION_FILE + "] is complete (moved into "
+                  + "place).");
+          return;
         }
-        watchKey.reset();
+
+        /* it has been created empty or is written to without events
+           arriving yet, wait until it has not changed for a while */
+        signal = WRITTEN;
+        deadline = deadline(signal);
+        continue;
       }
 
-      /* if a file change has been detected before */
-      else {
-        /* loop until no more change is detected in the root folder */
-        while (true) {
-          /* this is null, if no more change is going on */
-          watchKey = _watchService.poll(500, TimeUnit.MILLISECONDS);
-
-          /* if no more changes are detected, update the project */
-          if (watchKey == null) {
-            Platform.runLater(() -> {
-              log.debug("[" + changingFile + "] has changed.");
-              _project.initRuleModel();
-//              if (_ruleModel.getRootImport() == null) {
-//                _ruleModel.init();
-//              } else {
-//                _ruleModel.update();
-//              }
-              _rudiHierarchy.setFilesUpToDate();
-            });
-            ruleLocationFileChanged = false;
-            break;
-          }
-
-          /* remove the events or watchKey can't be resetted properly */
-          for (WatchEvent<?> event : watchKey.pollEvents()) {
-            WatchEvent.Kind<?> kind = event.kind();
-            WatchEvent<Path> ev = (WatchEvent<Path>) event;
-            changingFile = ev.context();
-
-            /* is ~RuleLocation.yml changing? */
-            if ((kind == ENTRY_CREATE || kind == ENTRY_MODIFY)
-                && changingFile.getFileName().toString()
-                .equals(RULE_LOCATION_FILE)) {
-              log.debug("[" + changingFile + "] is still being modified.");
-            }
-            /* is some other file changing? */
-            else {
-              log.warn("A file has been changed during modification of the"
-                  + "Rule Location file: " + changingFile);
-            }
-          }
-          watchKey.reset();
-        }
+      int next = readEvents(watchKey, true);
+      if (next == COMPLETED) return;
+      if (next != NONE) {
+        log.debug("[" + RULE_LOCATION_FILE + "] is still being modified.");
+        signal = next;
+        deadline = deadline(signal);
+        settled = signal == CREATED ? fileState() : null;
       }
     }
   }
+
+  /**
+   * @return The size and modification time of the <code>RuleLoc.yml</code>,
+   * or null if it does not exist or is empty
+   */
+  private String fileState() {
+    try {
+      BasicFileAttributes attrs = Files.readAttributes(
+              _folder.resolve(RULE_LOCATION_FILE), BasicFileAttributes.class);
+      if (attrs.size() == 0) return null;
+      return attrs.size() + "@" + attrs.lastModifiedTime();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /** @return When a file with the given signal is considered complete */
+  private static long deadline(int signal) {
+    return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+            signal == CREATED ? SETTLE_MILLIS : DEBOUNCE_MILLIS);
+  }
+
+  /**
+   * Reads and clears the events of a given WatchKey.
+   *
+   * @param changing
+   *        True, if the <code>RuleLoc.yml</code> is known to have changed
+   * @return <code>COMPLETED</code> if the marker file has been touched after
+   * the <code>RuleLoc.yml</code> changed, <code>WRITTEN</code> if it has been
+   * written to, <code>CREATED</code> if it only has been created, else
+   * <code>NONE</code>
+   */
+  private static int readEvents(WatchKey watchKey, boolean changing) {
+    boolean created = false;
+    boolean written = false;
+    boolean completed = false;
+    for (WatchEvent<?> event : watchKey.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        written = true;
+        continue;
+      }
+      String name = ((WatchEvent<Path>) event).context().toString();
+      if (name.equals(RULE_LOCATION_MARKER_FILE)) {
+        completed = true;
+      } else if (name.equals(RULE_LOCATION_FILE)) {
+        if (event.kind() == ENTRY_CREATE) created = true;
+        else written = true;
+      }
+    }
+    watchKey.reset();
+    if (completed) {
+      if (changing || written || created) return COMPLETED;
+      log.debug("[" + RULE_LOCATION_MARKER_FILE + "] has been touched, but ["
+              + RULE_LOCATION_FILE + "] has not changed.");
+    }
+    return written ? WRITTEN
+            : created ? CREATED : NONE;
+  }
 }
@@ -20,39 +20,67 @@
 package de.dfki.mlt.rudibugger.rpc;
 
 import de.dfki.mlt.rudimant.common.DefaultLogger;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
- * TODO: Missing documentation
+ * Collects the strings printed by VOnDA's logger for one rule and their
+ * evaluation outcomes, and turns them into a compact <code>LogData</code>
+ * object.
+ *
+ * The collected data is kept in reusable buffers, so an instance must only be
+ * used by one thread.
  *
  * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
  */
 public class JavaFXLogger extends DefaultLogger {
 
-  private ArrayList<LogData> data = new ArrayList<LogData>();
+  /** The strings printed for the current rule. */
+  private String[] _parts = new String[16];
+
+  /** The evaluation outcomes of the printed strings. */
+  private byte[] _outcomes = new byte[16];
+
+  /** The number of strings printed for the current rule. */
+  private int _count = 0;
 
   private void printInColor(String s, int color) {
-    if (data.isEmpty()) data.add(new LogData());
-    data.get(0).addStringPart(s, color);
+    if (_count == _parts.length) {
+      _parts = Arrays.copyOf(_parts, _count * 2);
+      _outcomes = Arrays.copyOf(_outcomes, _count * 2);
+    }
+    _parts[_count] = s;
+    _outcomes[_count] = (byte) color;
+    _count++;
   }
 
-  public LogData popContent() {
-    LogData returnVal = data.remove(0);
+  /**
+   * Creates a <code>LogData</code> object from the collected strings and
+   * resets the buffers.
+   *
+   * @param template
+   *        The term table of the logged rule, new strings will be interned
+   * @return The log entry
+   */
+  public LogData popContent(LogTemplate template) {
+    int[] termIndices = new int[_count];
+    for (int i = 0; i < _count; i++) {
+      termIndices[i] = template.intern(_parts[i]);
+      _parts[i] = null;
+    }
+    LogData returnVal = new LogData(template, termIndices,
+            Arrays.copyOf(_outcomes, _count));
+    _count = 0;
     return returnVal;
   }
 
-  public void addRuleIdToLogData(int ruleId) {
-    data.get(0).addRuleId(ruleId);
-  }
-
   public boolean pendingLoggingData() {
-    return ! data.isEmpty();
+    return _count > 0;
   }
 
   @Override
   protected void print(String s) {
-    if (s != "\n")
-      data.get(0).addStringPart(s, LogData.BLACK);
+    if (s != "\n" && _count > 0)
+      printInColor(s, LogData.BLACK);
   }
 
   @Override
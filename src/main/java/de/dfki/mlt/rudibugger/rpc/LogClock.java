@@ -0,0 +1,138 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.rpc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provides the timestamps of new log entries: the time in epoch milliseconds
+ * and a counter telling how many entries have been logged at that exact
+ * millisecond.
+ *
+ * Both values are kept packed in one <code>AtomicLong</code>, so any number
+ * of threads may request timestamps without locking and without creating
+ * objects.
+ *
+ * In high resolution mode, the time is measured with
+ * <code>System.nanoTime</code> (anchored at the wall clock time when the clock
+ * was created), which also provides the nanoseconds within the millisecond.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class LogClock {
+
+  /** The number of low bits used by the counter in a stamp. */
+  private static final int COUNTER_BITS = 20;
+
+  /** Extracts the counter from a stamp. */
+  private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+  /** Nanoseconds per millisecond. */
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** The last stamp handed out: milliseconds and counter. */
+  private final AtomicLong _last = new AtomicLong();
+
+  /** Indicates whether System.nanoTime is used. */
+  private final boolean _highResolution;
+
+  /** The wall clock time in epoch nanoseconds when this clock was created. */
+  private final long _anchorEpochNanos;
+
+  /** The value of System.nanoTime when this clock was created. */
+  private final long _anchorNanoTime;
+
+
+  /* ***************************************************************************
+   * CONSTRUCTOR
+   * **************************************************************************/
+
+  /**
+   * Creates a new clock.
+   *
+   * @param highResolution
+   *        True, if the time should be measured with System.nanoTime
+   */
+  public LogClock(boolean highResolution) {
+    _highResolution = highResolution;
+    _anchorEpochNanos = System.currentTimeMillis() * NANOS_PER_MILLI;
+    _anchorNanoTime = System.nanoTime();
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /** @return The current time in epoch nanoseconds */
+  public long readNanos() {
+    if (_highResolution)
+      return _anchorEpochNanos + (System.nanoTime() - _anchorNanoTime);
+    return System.currentTimeMillis() * NANOS_PER_MILLI;
+  }
+
+  /**
+   * Creates the stamp of a new log entry.
+   *
+   * @param epochNanos
+   *        The time of the entry, as returned by {@link #readNanos()}
+   * @return The packed milliseconds and counter of the entry, see
+   * {@link #millis(long)} and {@link #counter(long)}
+   */
+  public long stamp(long epochNanos) {
+    long millis = epochNanos / NANOS_PER_MILLI;
+    long last, next;
+    do {
+      last = _last.get();
+      if ((last >>> COUNTER_BITS) == millis
+          && (last & COUNTER_MASK) != COUNTER_MASK) {
+        next = last + 1;
+      } else {
+        next = (millis << COUNTER_BITS) | 1;
+      }
+    } while (! _last.compareAndSet(last, next));
+    return next;
+  }
+
+  /**
+   * @param epochNanos
+   *        A time as returned by {@link #readNanos()}
+   * @return The nanoseconds within the millisecond, or -1 if this clock is not
+   * in high resolution mode
+   */
+  public int nanosOfMilli(long epochNanos) {
+    return _highResolution ? (int) (epochNanos % NANOS_PER_MILLI) : -1;
+  }
+
+  /** @return True, if the time is measured with System.nanoTime */
+  public boolean isHighResolution() { return _highResolution; }
+
+  /** @return The epoch milliseconds of a stamp */
+  public static long millis(long stamp) { return stamp >>> COUNTER_BITS; }
+
+  /** @return The same-millisecond counter of a stamp (starting at 1) */
+  public static int counter(long stamp) { return (int) (stamp & COUNTER_MASK); }
+
+}
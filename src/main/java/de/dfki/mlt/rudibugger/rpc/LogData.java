@@ -20,14 +20,20 @@
 package de.dfki.mlt.rudibugger.rpc;
 
 import java.util.ArrayList;
-import java.util.Date;
-import javafx.beans.property.SimpleObjectProperty;
+import java.util.concurrent.atomic.AtomicLong;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
 
 /**
  * This class is used to organize the received data from VOnDA. One instance of
  * this class represents one log entry. Its fields will
  * be used as columns in the different rows of the ruleLoggingTreeView.
  *
+ * To keep large logs small, an entry only stores primitive data: the
+ * timestamp, the indices of its strings in the rule's {@link LogTemplate} and
+ * the evaluation outcome of every string. The objects shown in the table are
+ * only created when a row becomes visible.
+ *
  * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
  */
 public class LogData {
@@ -54,27 +60,41 @@ public class LogData {
    * FIELDS
    * **************************************************************************/
 
-  /** Currently used timestamp. */
-  private static Date currentDate = new Date();
+  /** Provides the timestamps of new log entries. */
+  private static volatile LogClock clock = new LogClock(false);
+
+  /** Provides the sequence numbers of new log entries. */
+  private static final AtomicLong nextSequence = new AtomicLong();
+
+  /** Represents the interned strings of the logged rule. */
+  private final LogTemplate _template;
+
+  /**
+   * Represents the indices of the printed strings in the template, the first
+   * one is the label. May be shared with other entries, never modified.
+   */
+  private final int[] _termIndices;
 
   /**
-   * Represents when the specific rule was logged and how many rules where
-   * logged at the exact same millisecond + 1.
+   * Represents the evaluation outcome of every printed string. May be shared
+   * with other entries, never modified.
    */
-  public SimpleObjectProperty<DatePart> timestamp;
+  private final byte[] _outcomes;
 
-  /** Indicates how often the current timestamp has been used. */
-  private static int timeCounter = 1;
+  /** Represents when the specific rule was logged (epoch millis). */
+  private final long _timestamp;
 
-  /** Represents the evaluated rule's label. */
-  public SimpleObjectProperty<StringPart> label = new SimpleObjectProperty<>();
+  /** Represents how many rules where logged at the exact same millisecond. */
+  private final int _counter;
 
-  /** Represents the evaluated strings / rule parts of the logged rule. */
-  public SimpleObjectProperty<ArrayList<StringPart>> evaluatedRuleParts
-          = new SimpleObjectProperty<>(new ArrayList<>());
+  /**
+   * Represents the nanoseconds within the millisecond, or -1 if timestamps
+   * are not taken in high resolution.
+   */
+  private final int _nanos;
 
-  /** Represents the ruleId of the logged rule. */
-  private int _ruleId;
+  /** Represents the order in which the log entries were created. */
+  private final long _sequence;
 
 
   /* ***************************************************************************
@@ -85,7 +105,7 @@ public class LogData {
    * Container class represents a (usually short) String and its evaluation
    * state.
    */
-  public class StringPart {
+  public static class StringPart {
 
     /** Represents a (short) String) */
     public String content;
@@ -114,25 +134,43 @@ public class LogData {
    * timestamp. The ranking is necessary if things are logged at the exact same
    * moment.
    */
-  public class DatePart {
+  public static class DatePart {
 
-    /** Represents the date. */
-    public Date date;
+    /** Represents the time in epoch milliseconds. */
+    public long time;
 
     /** Represents the number of times something occurred at that exact time. */
     public int counter;
 
+    /**
+     * Represents the nanoseconds within the millisecond, or -1 if not
+     * available.
+     */
+    public int nanos;
+
+    /**
+     * Represents the order in which the log entries were created, used to
+     * sort them without comparing dates.
+     */
+    public long sequence;
+
     /**
      * Creates a new instance of the container class DatePart.
      *
-     * @param date
-     *        The current date
+     * @param time
+     *        The time in epoch milliseconds
      * @param counter
-     *        The number of times something occurred at the given date
+     *        The number of times something occurred at the given time
+     * @param nanos
+     *        The nanoseconds within the millisecond, or -1
+     * @param sequence
+     *        The sequence number of the log entry
      */
-    private DatePart(Date date, int counter) {
-      this.date = date;
+    private DatePart(long time, int counter, int nanos, long sequence) {
+      this.time = time;
       this.counter = counter;
+      this.nanos = nanos;
+      this.sequence = sequence;
     }
 
   }
@@ -142,45 +180,96 @@ public class LogData {
    * CLASS-SPECIFIC METHODS
    * **************************************************************************/
 
-  /** Creates a new LogData object. */
-  public LogData() {
-    Date date = new Date();
-    if (currentDate.equals(date)) {
-      timeCounter++;
-    } else {
-      currentDate = date;
-      timeCounter = 1;
-    }
-    timestamp = new SimpleObjectProperty<>(new DatePart(date, timeCounter));
+  /**
+   * Defines whether the timestamps of new log entries are taken with
+   * System.nanoTime (high resolution) or the wall clock.
+   *
+   * @param highResolution
+   *        True, if high resolution timestamps should be used
+   */
+  public static void setHighResolutionTimestamps(boolean highResolution) {
+    if (clock.isHighResolution() != highResolution)
+      clock = new LogClock(highResolution);
   }
 
   /**
-   * Adds a part of the rule to the evaluated rule parts.
+   * Creates a new LogData object. May be called by any thread.
    *
-   * @param content
-   *        A part of a rule
-   * @param evalOutcome
-   *        The evaluation outcome of the given part of the rule
+   * @param template
+   *        The interned strings of the logged rule
+   * @param termIndices
+   *        The indices of the printed strings in the template, starting with
+   *        the label
+   * @param outcomes
+   *        The evaluation outcome of every printed string
+   */
+  public LogData(LogTemplate template, int[] termIndices, byte[] outcomes) {
+    _template = template;
+    _termIndices = termIndices;
+    _outcomes = outcomes;
+    LogClock c = clock;
+    long nanos = c.readNanos();
+    long stamp = c.stamp(nanos);
+    _timestamp = LogClock.millis(stamp);
+    _counter = LogClock.counter(stamp);
+    _nanos = c.nanosOfMilli(nanos);
+    _sequence = nextSequence.getAndIncrement();
+  }
+
+  /** Creates the StringPart of the printed string at the given position. */
+  private StringPart createStringPart(int i) {
+    return new StringPart(_template.getTerm(_termIndices[i]), _outcomes[i]);
+  }
+
+  /** @return The evaluated rule's label, or null */
+  public StringPart getLabel() {
+    return _termIndices.length == 0 ? null : createStringPart(0);
+  }
+
+  /** @return The evaluated strings / rule parts of the logged rule */
+  public ArrayList<StringPart> getEvaluatedRuleParts() {
+    ArrayList<StringPart> parts = new ArrayList<>(_termIndices.length);
+    for (int i = 1; i < _termIndices.length; i++)
+      parts.add(createStringPart(i));
+    return parts;
+  }
+
+  /** @return When this rule was logged and its rank at that millisecond */
+  public DatePart getTimestamp() {
+    return new DatePart(_timestamp, _counter, _nanos, _sequence);
+  }
+
+  /**
+   * @return The evaluated rule's label as a read-only property, created on
+   * demand.
    */
-  public void addStringPart(String content, int evalOutcome) {
-    if (label.getValue() == null)
-      label.setValue(new StringPart(content, evalOutcome));
-    else
-      evaluatedRuleParts.getValue().add(new StringPart(content, evalOutcome));
+  public ObservableValue<StringPart> labelProperty() {
+    return new ReadOnlyObjectWrapper<>(getLabel());
   }
 
   /**
-   * Adds the ruleId to the instance of LogData.
-   *
-   * <br/><br/>(<i>This function is necessary due to restrictions of the
-   * superclasses of the Logger classes.</i>)
-   *
-   * @param ruleId
-   *        The ruleId of the given rule
+   * @return The evaluated strings / rule parts of the logged rule as a
+   * read-only property, created on demand.
    */
-  public void addRuleId(int ruleId) { _ruleId = ruleId; }
+  public ObservableValue<ArrayList<StringPart>> evaluatedRulePartsProperty() {
+    return new ReadOnlyObjectWrapper<>(getEvaluatedRuleParts());
+  }
+
+  /** @return The timestamp as a read-only property, created on demand */
+  public ObservableValue<DatePart> timestampProperty() {
+    return new ReadOnlyObjectWrapper<>(getTimestamp());
+  }
+
+  /** @return The indices of the printed strings in the template */
+  int[] getTermIndices() { return _termIndices; }
+
+  /** @return The evaluation outcome of every printed string */
+  byte[] getOutcomes() { return _outcomes; }
 
   /** @return The ruleId of the rule linked to this log entry. */
-  public int getRuleId() { return _ruleId; }
+  public int getRuleId() { return _template.getRuleId(); }
+
+  /** @return The sequence number (creation order) of this log entry. */
+  public long getSequence() { return _sequence; }
 
 }
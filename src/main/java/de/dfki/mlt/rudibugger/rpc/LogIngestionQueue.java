@@ -0,0 +1,198 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.rpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded queue between the thread receiving log events from VOnDA and the
+ * JavaFX application thread.
+ *
+ * Incoming entries are buffered and drained on a fixed cadence (one pulse
+ * every {@value #DEFAULT_PULSE_MILLIS} ms). Every pulse hands the whole batch
+ * to the consumer in one call on the publishing executor, and there is never
+ * more than one batch waiting to be published. If the queue is full, new
+ * entries are dropped and counted instead of blocking the network thread.
+ *
+ * @param <E> The type of the queued entries
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class LogIngestionQueue<E> {
+
+  /** The logger. */
+  static Logger log = LoggerFactory.getLogger("logIngestion");
+
+  /** The default maximum number of entries waiting to be published. */
+  public static final int DEFAULT_CAPACITY = 50000;
+
+  /** The default time between two pulses in milliseconds. */
+  public static final long DEFAULT_PULSE_MILLIS = 16;
+
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** Contains the entries waiting to be published. */
+  private final ArrayBlockingQueue<E> _queue;
+
+  /** Time between two pulses in milliseconds. */
+  private final long _pulseMillis;
+
+  /** Used to hand the drained batches to the consumer. */
+  private final Executor _publisher;
+
+  /** Receives the drained batches (oldest entry first). */
+  private final Consumer<List<E>> _consumer;
+
+  /** Indicates that a batch has been handed to the publisher, but not run. */
+  private final AtomicBoolean _publishPending = new AtomicBoolean(false);
+
+  /** Counts the entries that were dropped because the queue was full. */
+  private final AtomicLong _dropped = new AtomicLong();
+
+  /** The number of dropped entries that has already been reported. */
+  private long _reportedDropped = 0;
+
+  /** Runs the pulses. */
+  private ScheduledExecutorService _pulse;
+
+
+  /* ***************************************************************************
+   * CONSTRUCTORS
+   * **************************************************************************/
+
+  /**
+   * Creates a new queue with the default capacity and cadence.
+   *
+   * @param publisher
+   *        The executor running the consumer, e.g. Platform::runLater
+   * @param consumer
+   *        Receives the batches
+   */
+  public LogIngestionQueue(Executor publisher, Consumer<List<E>> consumer) {
+    this(DEFAULT_CAPACITY, DEFAULT_PULSE_MILLIS, publisher, consumer);
+  }
+
+  /**
+   * Creates a new queue.
+   *
+   * @param capacity
+   *        The maximum number of entries waiting to be published
+   * @param pulseMillis
+   *        The time between two pulses in milliseconds
+   * @param publisher
+   *        The executor running the consumer, e.g. Platform::runLater
+   * @param consumer
+   *        Receives the batches
+   */
+  public LogIngestionQueue(int capacity, long pulseMillis, Executor publisher,
+          Consumer<List<E>> consumer) {
+    _queue = new ArrayBlockingQueue<>(capacity);
+    _pulseMillis = pulseMillis;
+    _publisher = publisher;
+    _consumer = consumer;
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /** Starts draining the queue. */
+  public synchronized void start() {
+    if (_pulse != null) return;
+    _pulse = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "logIngestionPulse");
+      t.setDaemon(true);
+      return t;
+    });
+    _pulse.scheduleAtFixedRate(this::pulse, _pulseMillis, _pulseMillis,
+            TimeUnit.MILLISECONDS);
+  }
+
+  /** Stops draining the queue and discards all waiting entries. */
+  public synchronized void stop() {
+    if (_pulse == null) return;
+    _pulse.shutdownNow();
+    _pulse = null;
+    _queue.clear();
+  }
+
+  /**
+   * Adds a new entry to the queue. Never blocks.
+   *
+   * @param entry
+   *        The new entry
+   * @return True, if the entry has been queued, false if it has been dropped
+   */
+  public boolean offer(E entry) {
+    if (_queue.offer(entry)) return true;
+    _dropped.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Drains the queue and hands the batch to the publisher, unless the
+   * previous batch has not been published yet.
+   */
+  private void pulse() {
+    long dropped = _dropped.get();
+    if (dropped != _reportedDropped) {
+      log.warn("Log queue overflow, dropped " + (dropped - _reportedDropped)
+              + " entries (" + dropped + " in total).");
+      _reportedDropped = dropped;
+    }
+
+    if (_queue.isEmpty() || ! _publishPending.compareAndSet(false, true))
+      return;
+
+    List<E> batch = new ArrayList<>(_queue.size());
+    _queue.drainTo(batch);
+    _publisher.execute(() -> {
+      _publishPending.set(false);
+      _consumer.accept(batch);
+    });
+  }
+
+
+  /* ***************************************************************************
+   * GETTERS
+   * **************************************************************************/
+
+  /** @return The number of entries currently waiting to be published */
+  public int getQueueDepth() { return _queue.size(); }
+
+  /** @return The number of entries dropped because the queue was full */
+  public long getDroppedEntries() { return _dropped.get(); }
+
+}
@@ -0,0 +1,365 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package de.dfki.mlt.rudibugger.rpc;
+
+import static de.dfki.mlt.rudimant.common.Constants.STATE_ALWAYS;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps VOnDA's copy of the rules' logging states in sync using the bulk
+ * <code>setLogStats</code> command.
+ *
+ * <code>setLogStats &lt;version&gt; &lt;baseVersion&gt; &lt;run&gt;...</code>
+ * sets the states of all rules in the given runs. A run has the form
+ * <code>state:firstId-lastId</code> (or <code>state:id</code>) and covers
+ * consecutive rule ids with the same state. If <code>baseVersion</code> is 0,
+ * VOnDA first resets all rules to <code>STATE_ALWAYS</code>, so only the
+ * non-default states are sent. Otherwise the runs are a diff against the
+ * states of update <code>baseVersion</code>, which is always the last update
+ * VOnDA acknowledged. VOnDA answers with
+ * <code>logStatsAck &lt;version&gt;</code>, or with
+ * <code>logStatsNack &lt;version&gt;</code> if its current version differs
+ * from the base version (e.g. because it has been restarted or applied an
+ * update whose answer got lost), which causes a full resend.
+ *
+ * Only one update is sent at a time: changes made while waiting for an
+ * answer are sent as one diff once it arrives. An update that has not been
+ * answered when the connection is lost does not matter, the next one is again
+ * based on the acknowledged states. Since these survive reconnects, a
+ * reconnect only needs to send the rules that changed in the meantime.
+ *
+ * Whether VOnDA understands <code>setLogStats</code> is negotiated when
+ * connecting: rudibugger sends
+ * <code>protocol logStats &lt;version&gt;</code> and VOnDA answers with the
+ * same message if it does. Otherwise the states are sent rule by rule with
+ * <code>setLogStat</code>, see {@link #syncEach(RuleStateSender, Map)}.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class LogStateSync {
+
+  /** The logger. */
+  static Logger log = LoggerFactory.getLogger("logStateSync");
+
+  /** The command setting the logging states of many rules. */
+  public static final String SET_LOG_STATS = "setLogStats";
+
+  /** VOnDA's answer if the states have been applied. */
+  public static final String LOG_STATS_ACK = "logStatsAck";
+
+  /** VOnDA's answer if the base version is unknown. */
+  public static final String LOG_STATS_NACK = "logStatsNack";
+
+  /** The name of the bulk states protocol in the negotiation. */
+  public static final String BULK_STATES = "logStats";
+
+  /** The version of the bulk states protocol. */
+  public static final int VERSION = 1;
+
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** The non-default states VOnDA should have. */
+  private final HashMap<Integer, Integer> _target = new HashMap<>();
+
+  /** The non-default states of the last acknowledged update. */
+  private final HashMap<Integer, Integer> _acked = new HashMap<>();
+
+  /** The version of the last acknowledged update, 0 if there is none. */
+  private int _ackedVersion = 0;
+
+  /** The non-default states of the update waiting for an answer. */
+  private HashMap<Integer, Integer> _pending = null;
+
+  /** The version of the update waiting for an answer, 0 if there is none. */
+  private int _pendingVersion = 0;
+
+  /** The version of the next update. */
+  private int _nextVersion = 1;
+
+  /** The non-default states sent rule by rule. */
+  private final HashMap<Integer, Integer> _sentEach = new HashMap<>();
+
+
+  /** Sends an update to VOnDA. */
+  public interface UpdateSender {
+
+    /**
+     * @param version
+     *        The version of the new states
+     * @param baseVersion
+     *        The version the runs are a diff against, 0 for all states
+     * @param runs
+     *        The encoded states
+     */
+    void send(int version, int baseVersion, List<String> runs);
+  }
+
+  /** Sends the state of a single rule to VOnDA. */
+  public interface RuleStateSender {
+
+    /**
+     * @param ruleId
+     *        The id of the rule
+     * @param state
+     *        The new state of the rule
+     */
+    void send(int ruleId, int state);
+  }
+
+
+  /* ***************************************************************************
+   * ENCODING
+   * **************************************************************************/
+
+  /**
+   * Encodes logging states as runs of consecutive rule ids.
+   *
+   * @param states
+   *        Maps rule ids to their state
+   * @return The runs
+   */
+  public static List<String> encode(SortedMap<Integer, Integer> states) {
+    List<String> runs = new ArrayList<>();
+    int first = 0, last = 0, state = 0;
+    boolean open = false;
+    for (Map.Entry<Integer, Integer> e : states.entrySet()) {
+      int id = e.getKey();
+      if (open && id == last + 1 && e.getValue() == state) {
+        last = id;
+        continue;
+      }
+      if (open) runs.add(run(state, first, last));
+      first = last = id;
+      state = e.getValue();
+      open = true;
+    }
+    if (open) runs.add(run(state, first, last));
+    return runs;
+  }
+
+  private static String run(int state, int first, int last) {
+    return state + ":" + first + (first == last ? "" : "-" + last);
+  }
+
+  /**
+   * Decodes a run.
+   *
+   * @param run
+   *        The run, as created by {@link #encode(SortedMap)}
+   * @param sink
+   *        Receives every rule id of the run and its state
+   * @throws IllegalArgumentException
+   *         If the run is malformed
+   */
+  public static void decode(String run, BiConsumer<Integer, Integer> sink) {
+    int colon = run.indexOf(':');
+    int dash = run.indexOf('-', colon + 1);
+    if (colon < 0) throw new IllegalArgumentException("Illegal run: " + run);
+    int state = Integer.parseInt(run.substring(0, colon));
+    int first = Integer.parseInt(
+            run.substring(colon + 1, dash < 0 ? run.length() : dash));
+    int last = dash < 0 ? first : Integer.parseInt(run.substring(dash + 1));
+    for (int id = first; id <= last; id++) sink.accept(id, state);
+  }
+
+
+  /* ***************************************************************************
+   * SYNCHRONIZATION
+   * **************************************************************************/
+
+  /** Remembers a state in a map only containing non-default states. */
+  private static void put(Map<Integer, Integer> states, int id, int state) {
+    if (state == STATE_ALWAYS) states.remove(id);
+    else states.put(id, state);
+  }
+
+  /**
+   * Sets the states VOnDA should have and sends the difference to the last
+   * acknowledged update.
+   *
+   * @param sender
+   *        Sends the update to VOnDA, e.g. the connected client
+   * @param states
+   *        Maps every rule id to its current state
+   */
+  public synchronized void sync(UpdateSender sender,
+          Map<Integer, Integer> states) {
+    _target.clear();
+    states.forEach((id, state) -> put(_target, id, state));
+    flush(sender);
+  }
+
+  /**
+   * Changes the states VOnDA should have and sends the difference to the
+   * last acknowledged update.
+   *
+   * @param sender
+   *        Sends the update to VOnDA, e.g. the connected client
+   * @param changed
+   *        Maps the ids of changed rules to their current state
+   */
+  public synchronized void update(UpdateSender sender,
+          Map<Integer, Integer> changed) {
+    changed.forEach((id, state) -> put(_target, id, state));
+    flush(sender);
+  }
+
+  /**
+   * Sends the difference between the states VOnDA should have and the last
+   * acknowledged update, unless an update is waiting for an answer.
+   */
+  private void flush(UpdateSender sender) {
+    if (_pendingVersion != 0) return;
+    TreeMap<Integer, Integer> diff = new TreeMap<>();
+    if (_ackedVersion == 0) {
+      diff.putAll(_target);
+    } else {
+      _target.forEach((id, state) -> {
+        if (! state.equals(_acked.get(id))) diff.put(id, state);
+      });
+      _acked.keySet().forEach(id -> {
+        if (! _target.containsKey(id)) diff.put(id, STATE_ALWAYS);
+      });
+      if (diff.isEmpty()) return;
+    }
+    _pending = new HashMap<>(_target);
+    _pendingVersion = _nextVersion++;
+    List<String> runs = encode(diff);
+    log.debug("Sending " + diff.size() + " logging states in " + runs.size()
+            + " runs (version " + _pendingVersion + ", base " + _ackedVersion
+            + ").");
+    sender.send(_pendingVersion, _ackedVersion, runs);
+  }
+
+  /**
+   * Called when VOnDA acknowledged an update, the changes made in the
+   * meantime are sent.
+   *
+   * @param sender
+   *        Sends the update to VOnDA, e.g. the connected client
+   * @param version
+   *        The acknowledged version
+   */
+  public synchronized void acknowledged(UpdateSender sender, int version) {
+    if (version != _pendingVersion) {
+      log.debug("Ignoring the answer to version " + version + ".");
+      return;
+    }
+    _acked.clear();
+    _acked.putAll(_pending);
+    _ackedVersion = version;
+    _pending = null;
+    _pendingVersion = 0;
+    flush(sender);
+  }
+
+  /**
+   * Called when VOnDA rejected an update, all states are sent again.
+   *
+   * @param sender
+   *        Sends the update to VOnDA, e.g. the connected client
+   * @param version
+   *        The rejected version
+   */
+  public synchronized void rejected(UpdateSender sender, int version) {
+    if (version != _pendingVersion) {
+      log.debug("Ignoring the answer to version " + version + ".");
+      return;
+    }
+    _acked.clear();
+    _ackedVersion = 0;
+    _pending = null;
+    _pendingVersion = 0;
+    flush(sender);
+  }
+
+  /**
+   * Called when a new connection has been established: an update still
+   * waiting for an answer will not be answered any more.
+   */
+  public synchronized void reconnected() {
+    _pending = null;
+    _pendingVersion = 0;
+  }
+
+  /**
+   * Sets the states VOnDA should have and sends them rule by rule, if VOnDA
+   * does not understand <code>setLogStats</code>. Since VOnDA's states are
+   * not known, all non-default states are sent, and the default state for
+   * all rules that had been sent another state before.
+   *
+   * @param sender
+   *        Sends the states to VOnDA, e.g. the connected client
+   * @param states
+   *        Maps every rule id to its current state
+   */
+  public synchronized void syncEach(RuleStateSender sender,
+          Map<Integer, Integer> states) {
+    _target.clear();
+    states.forEach((id, state) -> put(_target, id, state));
+    TreeMap<Integer, Integer> send = new TreeMap<>(_target);
+    _sentEach.keySet().forEach(id -> {
+      if (! _target.containsKey(id)) send.put(id, STATE_ALWAYS);
+    });
+    sendEach(sender, send);
+  }
+
+  /**
+   * Sends the states of the given rules rule by rule if they differ from the
+   * states sent before.
+   *
+   * @param sender
+   *        Sends the states to VOnDA, e.g. the connected client
+   * @param changed
+   *        Maps the ids of changed rules to their current state
+   */
+  public synchronized void updateEach(RuleStateSender sender,
+          Map<Integer, Integer> changed) {
+    TreeMap<Integer, Integer> send = new TreeMap<>();
+    changed.forEach((id, state) -> {
+      put(_target, id, state);
+      if (! state.equals(_sentEach.getOrDefault(id, STATE_ALWAYS)))
+        send.put(id, state);
+    });
+    sendEach(sender, send);
+  }
+
+  /** Sends the given states rule by rule. */
+  private void sendEach(RuleStateSender sender, Map<Integer, Integer> states) {
+    if (states.isEmpty()) return;
+    log.debug("Sending " + states.size() + " logging states rule by rule.");
+    states.forEach((id, state) -> {
+      put(_sentEach, id, state);
+      sender.send(id, state);
+    });
+  }
+
+}
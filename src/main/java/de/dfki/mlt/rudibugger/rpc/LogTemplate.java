@@ -0,0 +1,187 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.rpc;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The interned term table of one rule. Log entries of this rule do not store
+ * their strings, only indices into this table.
+ *
+ * The table is seeded with the rule's label and base terms when the
+ * <code>RuleModel</code> is built and grows if the logger prints other
+ * strings (e.g. operators). Only one thread may add strings, but any thread
+ * may read them.
+ *
+ * The printed output of a rule only depends on the evaluation results sent by
+ * VOnDA. The template therefore also remembers the output for every result
+ * pattern it has seen, so that repeated patterns can be logged without
+ * running the logger again. This cache is only used by the writing thread.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class LogTemplate {
+
+  /** The maximum number of result patterns remembered per rule. */
+  private static final int MAX_CACHED_PATTERNS = 64;
+
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** The id of the rule this template belongs to. */
+  private final int _ruleId;
+
+  /** The interned strings, replaced (never modified) when growing. */
+  private volatile String[] _terms;
+
+  /** Maps the interned strings to their index, only used by the writer. */
+  private final HashMap<String, Integer> _index = new HashMap<>();
+
+  /** The number of evaluation results of the cached patterns. */
+  private int _patternLength = -1;
+
+  /** The cached result patterns, packed into bits. */
+  private long[] _patterns = new long[0];
+
+  /** The term indices printed for the cached patterns. */
+  private int[][] _patternTermIndices = new int[0][];
+
+  /** The outcomes printed for the cached patterns. */
+  private byte[][] _patternOutcomes = new byte[0][];
+
+
+  /* ***************************************************************************
+   * CONSTRUCTOR
+   * **************************************************************************/
+
+  /**
+   * Creates a new template.
+   *
+   * @param ruleId
+   *        The id of the rule
+   * @param label
+   *        The rule's label, may be null
+   * @param baseTerms
+   *        The rule's base terms, may be null
+   */
+  public LogTemplate(int ruleId, String label, String[] baseTerms) {
+    _ruleId = ruleId;
+    _terms = new String[0];
+    if (label != null) intern(label);
+    if (baseTerms != null)
+      for (String term : baseTerms) intern(term);
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /**
+   * Returns the index of the given string, adding it to the table if
+   * necessary.
+   *
+   * @param term
+   *        A string printed for this rule
+   * @return The index of the string in the table
+   */
+  public int intern(String term) {
+    Integer i = _index.get(term);
+    if (i != null) return i;
+    String[] terms = Arrays.copyOf(_terms, _terms.length + 1);
+    terms[terms.length - 1] = term;
+    _index.put(term, terms.length - 1);
+    _terms = terms;
+    return terms.length - 1;
+  }
+
+  /**
+   * Packs the given evaluation results into the bits of a long.
+   *
+   * @return The packed results, or -1 if there are too many results
+   */
+  private static long pack(boolean[] result) {
+    if (result.length >= Long.SIZE) return -1;
+    long bits = 0;
+    for (int i = 0; i < result.length; i++)
+      if (result[i]) bits |= 1L << i;
+    return bits;
+  }
+
+  /**
+   * Creates a log entry from a previously seen result pattern.
+   *
+   * @param result
+   *        The evaluation results sent by VOnDA
+   * @return The log entry, or null if the pattern is not known yet
+   */
+  public LogData createLogData(boolean[] result) {
+    if (result.length != _patternLength) return null;
+    long bits = pack(result);
+    if (bits < 0) return null;
+    for (int i = 0; i < _patterns.length; i++) {
+      if (_patterns[i] == bits)
+        return new LogData(this, _patternTermIndices[i], _patternOutcomes[i]);
+    }
+    return null;
+  }
+
+  /**
+   * Remembers the printed output of a result pattern.
+   *
+   * @param result
+   *        The evaluation results sent by VOnDA
+   * @param data
+   *        The log entry created by the logger for these results
+   */
+  public void rememberPattern(boolean[] result, LogData data) {
+    long bits = pack(result);
+    if (bits < 0) return;
+    if (_patternLength != result.length) {
+      /* the rule changed its shape, forget everything */
+      _patternLength = result.length;
+      _patterns = new long[0];
+      _patternTermIndices = new int[0][];
+      _patternOutcomes = new byte[0][];
+    }
+    int n = _patterns.length;
+    if (n == MAX_CACHED_PATTERNS) return;
+    _patterns = Arrays.copyOf(_patterns, n + 1);
+    _patternTermIndices = Arrays.copyOf(_patternTermIndices, n + 1);
+    _patternOutcomes = Arrays.copyOf(_patternOutcomes, n + 1);
+    _patterns[n] = bits;
+    _patternTermIndices[n] = data.getTermIndices();
+    _patternOutcomes[n] = data.getOutcomes();
+  }
+
+  /**
+   * @param index
+   *        The index of an interned string
+   * @return The interned string
+   */
+  public String getTerm(int index) { return _terms[index]; }
+
+  /** @return The id of the rule this template belongs to */
+  public int getRuleId() { return _ruleId; }
+
+}
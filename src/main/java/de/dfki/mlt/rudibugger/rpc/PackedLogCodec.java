@@ -0,0 +1,197 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.rpc;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the compact log format that can be negotiated with
+ * VOnDA instead of the textual <code>printLog</code> command.
+ *
+ * A frame contains one or more log events. Every event consists of the rule
+ * id and the number of results (both as unsigned variable length integers)
+ * followed by the results packed into a bitset (least significant bit first).
+ * Since VOnDA's <code>SimpleClient</code> can only transport strings, a frame
+ * is sent as a single Base64 token:
+ * <code>printLogPacked &lt;frame&gt;</code>.
+ *
+ * The format is negotiated when connecting: rudibugger sends
+ * <code>protocol packed &lt;version&gt;</code> and VOnDA answers with the same
+ * message if it supports the format. The textual command is always accepted
+ * as a fallback. Support for the bulk <code>setLogStats</code> command is
+ * negotiated separately, see {@link LogStateSync}.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public final class PackedLogCodec {
+
+  /** The command carrying a frame. */
+  public static final String PRINT_LOG_PACKED = "printLogPacked";
+
+  /** The command used to negotiate the protocol. */
+  public static final String PROTOCOL = "protocol";
+
+  /** The name of the packed protocol. */
+  public static final String PACKED = "packed";
+
+  /** The version of the packed protocol. */
+  public static final int VERSION = 1;
+
+  /** Does not need to be instantiated. */
+  private PackedLogCodec() {}
+
+  /** Receives the decoded log events. */
+  public interface LogSink {
+
+    /**
+     * @param ruleId
+     *        The id of the logged rule
+     * @param result
+     *        The evaluation results of the logged rule
+     */
+    void log(int ruleId, boolean[] result);
+  }
+
+
+  /* ***************************************************************************
+   * ENCODING
+   * **************************************************************************/
+
+  /** Collects log events and turns them into a frame. */
+  public static class FrameWriter {
+
+    /** Contains the encoded events. */
+    private byte[] _buffer = new byte[256];
+
+    /** The number of used bytes. */
+    private int _length = 0;
+
+    /** The number of events in the current frame. */
+    private int _events = 0;
+
+    /**
+     * Adds a log event to the current frame.
+     *
+     * @param ruleId
+     *        The id of the logged rule
+     * @param result
+     *        The evaluation results of the logged rule
+     */
+    public void add(int ruleId, boolean[] result) {
+      ensureCapacity(10 + (result.length + 7) / 8);
+      writeVarInt(ruleId);
+      writeVarInt(result.length);
+      for (int i = 0; i < result.length; i += 8) {
+        int b = 0;
+        for (int j = 0; j < 8 && i + j < result.length; j++)
+          if (result[i + j]) b |= 1 << j;
+        _buffer[_length++] = (byte) b;
+      }
+      _events++;
+    }
+
+    /** @return The number of events in the current frame */
+    public int getEvents() { return _events; }
+
+    /** @return The number of bytes of the current frame (before Base64) */
+    public int getLength() { return _length; }
+
+    /** @return The current frame as Base64 token, the writer is reset */
+    public String finish() {
+      String frame = Base64.getEncoder().withoutPadding()
+              .encodeToString(Arrays.copyOf(_buffer, _length));
+      _length = 0;
+      _events = 0;
+      return frame;
+    }
+
+    private void ensureCapacity(int additional) {
+      if (_length + additional > _buffer.length)
+        _buffer = Arrays.copyOf(_buffer,
+                Math.max(_buffer.length * 2, _length + additional));
+    }
+
+    private void writeVarInt(int value) {
+      if (value < 0)
+        throw new IllegalArgumentException("Negative value: " + value);
+      while ((value & ~0x7F) != 0) {
+        _buffer[_length++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      _buffer[_length++] = (byte) value;
+    }
+  }
+
+
+  /* ***************************************************************************
+   * DECODING
+   * **************************************************************************/
+
+  /**
+   * Decodes a frame and hands every event to the given sink.
+   *
+   * @param frame
+   *        The Base64 token received from VOnDA
+   * @param sink
+   *        Receives the decoded events
+   * @return The number of decoded events
+   * @throws IllegalArgumentException
+   *         If the frame is malformed
+   */
+  public static int decode(String frame, LogSink sink) {
+    byte[] data = Base64.getDecoder().decode(frame);
+    int[] pos = { 0 };
+    int events = 0;
+    while (pos[0] < data.length) {
+      int ruleId = readVarInt(data, pos);
+      int count = readVarInt(data, pos);
+      if ((long) count > (long) (data.length - pos[0]) * 8)
+        throw new IllegalArgumentException("Truncated frame");
+      boolean[] result = new boolean[count];
+      for (int i = 0; i < count; i++)
+        result[i] = (data[pos[0] + (i >>> 3)] & (1 << (i & 7))) != 0;
+      pos[0] += (count + 7) / 8;
+      sink.log(ruleId, result);
+      events++;
+    }
+    return events;
+  }
+
+  /** Reads an unsigned variable length integer and advances the position. */
+  private static int readVarInt(byte[] data, int[] pos) {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      if (pos[0] >= data.length)
+        throw new IllegalArgumentException("Truncated frame");
+      byte b = data[pos[0]++];
+      /* the fifth byte may only contribute the remaining bits */
+      if (shift == 28 && (b & 0x70) != 0)
+        throw new IllegalArgumentException("Illegal value");
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (value < 0) throw new IllegalArgumentException("Illegal value");
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Illegal variable length integer");
+  }
+
+}
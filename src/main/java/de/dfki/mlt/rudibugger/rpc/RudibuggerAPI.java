@@ -19,6 +19,8 @@
 
 package de.dfki.mlt.rudibugger.rpc;
 
+import static de.dfki.mlt.rudibugger.rpc.PackedLogCodec.*;
+
 import java.util.Arrays;
 import java.util.function.Consumer;
 import org.slf4j.Logger;
@@ -61,6 +63,16 @@ public class RudibuggerAPI implements Consumer<String[]> {
       case "printLog":
         printLog(parameters);
         break;
+      case PRINT_LOG_PACKED:
+        printLogPacked(parameters);
+        break;
+      case PROTOCOL:
+        protocol(parameters);
+        break;
+      case LogStateSync.LOG_STATS_ACK:
+      case LogStateSync.LOG_STATS_NACK:
+        logStats(command, parameters);
+        break;
       default:
         log.error("Illegal RudibuggerService call: {}",
                 Arrays.toString(args));
@@ -86,4 +98,46 @@ public class RudibuggerAPI implements Consumer<String[]> {
     }
   }
 
+  /**
+   * Starts the process to print the logs of one or more received frames in
+   * the ruleLoggingTableView, see {@link PackedLogCodec}.
+   */
+  public void printLogPacked(String[] args) {
+    for (String frame : args) {
+      try {
+        PackedLogCodec.decode(frame, _vonda::printLog);
+      } catch (IllegalArgumentException ex) {
+        log.error("Illegal RudibuggerService Call: "
+                + "printLogPacked can't work with frame {}", frame);
+      }
+    }
+  }
+
+  /** Handles VOnDA's answer to a <code>setLogStats</code> command. */
+  public void logStats(String command, String[] args) {
+    try {
+      int version = Integer.parseInt(args[0]);
+      _vonda.loggingStatesAnswered(version,
+              LogStateSync.LOG_STATS_ACK.equals(command));
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+      log.error("Illegal RudibuggerService Call: "
+              + "{} can't work with parameters {}", command,
+              Arrays.toString(args));
+    }
+  }
+
+  /** Handles VOnDA's answer to the protocol negotiation. */
+  public void protocol(String[] args) {
+    if (args.length == 2 && PACKED.equals(args[0])
+            && Integer.toString(VERSION).equals(args[1])) {
+      _vonda.setPackedLogs(true);
+    } else if (args.length == 2 && LogStateSync.BULK_STATES.equals(args[0])) {
+      _vonda.setBulkStates(
+              Integer.toString(LogStateSync.VERSION).equals(args[1]));
+    } else {
+      log.info("VOnDA does not support the protocol: {}",
+              Arrays.toString(args));
+    }
+  }
+
 }
@@ -21,6 +21,7 @@ package de.dfki.mlt.rudibugger.rpc;
 
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
+import java.util.List;
 import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -88,6 +89,46 @@ public class RudibuggerClient {
             Integer.toString(newState));
   }
 
+  /**
+   * Sets the ruleLoggingStates of many rules with one command, see
+   * {@link LogStateSync}.
+   *
+   * @param version
+   *        The version of the new states
+   * @param baseVersion
+   *        The version the runs are a diff against, 0 for all states
+   * @param runs
+   *        The encoded states
+   */
+  public void setLoggingStatuses(int version, int baseVersion,
+          List<String> runs) {
+    String[] args = new String[runs.size() + 3];
+    args[0] = LogStateSync.SET_LOG_STATS;
+    args[1] = Integer.toString(version);
+    args[2] = Integer.toString(baseVersion);
+    for (int i = 0; i < runs.size(); i++) args[i + 3] = runs.get(i);
+    client.send(args);
+  }
+
+  /**
+   * Asks VOnDA to send logs in the packed format, see
+   * {@link PackedLogCodec}. VOnDA will answer if it supports the format,
+   * otherwise logs keep arriving as text.
+   */
+  public void requestPackedLogs() {
+    client.send(PackedLogCodec.PROTOCOL, PackedLogCodec.PACKED,
+            Integer.toString(PackedLogCodec.VERSION));
+  }
+
+  /**
+   * Asks VOnDA whether it understands the bulk <code>setLogStats</code>
+   * command, see {@link LogStateSync}. VOnDA will answer if it does.
+   */
+  public void requestBulkStates() {
+    client.send(PackedLogCodec.PROTOCOL, LogStateSync.BULK_STATES,
+            Integer.toString(LogStateSync.VERSION));
+  }
+
   /**
    * Request information from VOnDA about a field of custom agent.
    *
@@ -0,0 +1,240 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.rpc;
+
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
+import de.dfki.mlt.rudimant.common.RuleLogger;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Turns the raw logs received from VOnDA into finished <code>LogData</code>
+ * objects on a dedicated worker thread, so that the JavaFX thread only has to
+ * publish them.
+ *
+ * The <code>RuleLogger</code> and the <code>JavaFXLogger</code> are only
+ * needed the first time a rule is logged with a certain result pattern;
+ * afterwards, the rule's <code>LogTemplate</code> creates the entry directly.
+ * Since the <code>RuleModel</code> is patched in place on the JavaFX thread,
+ * the rule logger is set up with the rule structure on that thread (when the
+ * worker is started and after every update) and then handed to the worker,
+ * which is the only one using it afterwards.
+ *
+ * Logs are formatted in the order they were received. If the worker falls too
+ * far behind, new logs are dropped and counted.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class RuleLogFormatter {
+
+  /** The logger. */
+  static Logger log = LoggerFactory.getLogger("ruleLogFormatter");
+
+  /** The maximum number of logs waiting to be formatted. */
+  public static final int DEFAULT_BACKLOG = 50000;
+
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** Represents the project's rule structure. */
+  private final RuleModel _ruleModel;
+
+  /** Receives the finished <code>LogData</code> objects. */
+  private final Consumer<LogData> _sink;
+
+  /** Counts the logs dropped because the backlog was full. */
+  private final AtomicLong _dropped = new AtomicLong();
+
+  /**
+   * A rule logger set up with the current rule structure, taken over by the
+   * worker thread before it formats the next log.
+   */
+  private final AtomicReference<RuleLogger> _nextRuleLogger
+          = new AtomicReference<>();
+
+  /** Runs the formatting, null if not started. */
+  private volatile ThreadPoolExecutor _worker;
+
+  /** Evaluates the logged rules, only used by the worker thread. */
+  private RuleLogger rl;
+
+  /** Creates the LogData objects, only used by the worker thread. */
+  private JavaFXLogger jfl;
+
+  /**
+   * Maps unknown rule ids to their term tables, only used by the worker
+   * thread. The templates of known rules are provided by the RuleModel.
+   */
+  private final HashMap<Integer, LogTemplate> _unknownTemplates
+          = new HashMap<>();
+
+
+  /* ***************************************************************************
+   * CONSTRUCTOR
+   * **************************************************************************/
+
+  /**
+   * Creates a new formatter. Must be called on the thread modifying the
+   * RuleModel.
+   *
+   * @param ruleModel
+   *        The rule structure the logged rules belong to
+   * @param sink
+   *        Receives the finished <code>LogData</code> objects on the worker
+   *        thread
+   */
+  public RuleLogFormatter(RuleModel ruleModel, Consumer<LogData> sink) {
+    _ruleModel = ruleModel;
+    _sink = sink;
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /**
+   * Starts the worker thread. Must be called on the thread modifying the
+   * RuleModel.
+   */
+  public synchronized void start() {
+    if (_worker != null) return;
+    _nextRuleLogger.set(createRuleLogger());
+    _worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(DEFAULT_BACKLOG),
+        r -> {
+          Thread t = new Thread(r, "ruleLogFormatter");
+          t.setDaemon(true);
+          return t;
+        },
+        (r, executor) -> _dropped.incrementAndGet());
+  }
+
+  /** Stops the worker thread and discards all logs not formatted yet. */
+  public synchronized void stop() {
+    if (_worker == null) return;
+    _worker.shutdownNow();
+    _worker = null;
+  }
+
+  /**
+   * Hands a log over to the worker thread. Never blocks.
+   *
+   * @param ruleId
+   *        The id of the logged rule
+   * @param result
+   *        The evaluation results of the logged rule
+   */
+  public void submit(int ruleId, boolean[] result) {
+    ThreadPoolExecutor worker = _worker;
+    if (worker == null) return;
+    try {
+      worker.execute(() -> format(ruleId, result));
+    } catch (RejectedExecutionException e) {
+      // worker has been shut down in the meantime
+    }
+  }
+
+  /**
+   * Tells the formatter that the RuleModel has been updated in place. Must be
+   * called on the thread modifying the RuleModel, after the update. The
+   * worker thread will use a rule logger for the new rule structure before
+   * formatting the next log.
+   */
+  public synchronized void ruleModelChanged() {
+    if (_worker != null) _nextRuleLogger.set(createRuleLogger());
+  }
+
+  /**
+   * Creates a rule logger for the current rule structure. Must be called on
+   * the thread modifying the RuleModel, since it walks the structure.
+   */
+  private RuleLogger createRuleLogger() {
+    RuleLogger logger = new RuleLogger();
+    logger.setRootInfo(_ruleModel.getRootImport());
+    logger.logAllRules();
+    return logger;
+  }
+
+  /** Formats a log and hands the result to the sink. Runs on the worker. */
+  private void format(int ruleId, boolean[] result) {
+    if (_nextRuleLogger.get() != null) {
+      RuleLogger next = _nextRuleLogger.getAndSet(null);
+      if (next != null) {
+        rl = next;
+        jfl = null;
+        _unknownTemplates.clear();
+      }
+    }
+    LogTemplate template = getTemplate(ruleId);
+    LogData data = template.createLogData(result);
+    if (data == null) {
+      /* Lazy initializing (defines how the view looks) */
+      if (jfl == null) {
+        jfl = new JavaFXLogger();
+        rl.registerPrinter(jfl);
+      }
+
+      rl.logRule(ruleId, result);
+      if (! jfl.pendingLoggingData()) return;
+      data = jfl.popContent(template);
+      template.rememberPattern(result, data);
+    }
+    _sink.accept(data);
+  }
+
+  /** @return The term table of the given rule */
+  private LogTemplate getTemplate(int ruleId) {
+    LogTemplate template = _ruleModel.getLogTemplate(ruleId);
+    if (template == null) {
+      template = _unknownTemplates.get(ruleId);
+      if (template == null) {
+        template = new LogTemplate(ruleId, null, null);
+        _unknownTemplates.put(ruleId, template);
+      }
+    }
+    return template;
+  }
+
+
+  /* ***************************************************************************
+   * GETTERS
+   * **************************************************************************/
+
+  /** @return The number of logs waiting to be formatted */
+  public int getBacklog() {
+    ThreadPoolExecutor worker = _worker;
+    return worker == null ? 0 : worker.getQueue().size();
+  }
+
+  /** @return The number of logs dropped because the backlog was full */
+  public long getDroppedLogs() { return _dropped.get(); }
+
+}
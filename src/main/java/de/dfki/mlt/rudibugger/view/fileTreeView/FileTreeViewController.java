@@ -95,6 +95,14 @@ public class FileTreeViewController {
                 + "has been removed.");
       }
     });
+    project.ruleModelRevisionProperty().addListener((o, ov, nv) -> {
+      if (project.getRuleModel() != null) {
+        markFilesInRudiList(project.getRudiHierarchy(),
+                project.getRuleModel(), project.getOptionalAgentBaseClass());
+        linkRudiPathsToImportInfos(project.getRudiHierarchy(),
+                project.getRuleModel());
+      }
+    });
   }
 
   /* ***************************************************************************
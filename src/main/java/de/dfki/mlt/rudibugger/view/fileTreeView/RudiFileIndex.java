@@ -0,0 +1,304 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+
+package de.dfki.mlt.rudibugger.view.fileTreeView;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the size, modification time and content hash of every
+ * <code>.rudi</code> file, and the content hash it had when the project was
+ * compiled the last time. A file is only considered modified if its content
+ * differs from the compiled one, so reverting an edit brings it back in sync.
+ *
+ * The index is persisted per project. A file is only hashed again if its
+ * size or modification time differs from the remembered ones. It is written
+ * by a background thread, so storing it does not block the JavaFX thread.
+ *
+ * If the compiled content of a file is not known (e.g. when there is no index
+ * yet), a file is considered modified if it is newer than the project's
+ * <code>RuleLoc.yml</code>, otherwise its current content is assumed to be
+ * the compiled one. Without <code>RuleLoc.yml</code>, no file is considered
+ * modified.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class RudiFileIndex {
+
+  static Logger log = LoggerFactory.getLogger("rudiFileIndex");
+
+  /** Identifies an index file ("RUFI"). */
+  private static final int MAGIC = 0x52554649;
+
+  /** The version of the index format. */
+  private static final int VERSION = 1;
+
+  /** Marks an unknown hash. */
+  private static final long NO_HASH = -1;
+
+  /** Writes the indices of all projects, one after the other. */
+  private static final ExecutorService WRITER
+          = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "rudiFileIndexWriter");
+            t.setDaemon(true);
+            return t;
+          });
+
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** Represents the folder containing the .rudi files. */
+  private final Path _rudiFolder;
+
+  /** Represents the file the index is stored in. */
+  private final Path _indexFile;
+
+  /** Maps the files' paths relative to the rudiFolder to their state. */
+  private final HashMap<String, FileState> _states = new HashMap<>();
+
+
+  /* ***************************************************************************
+   * SUBCLASSES
+   * **************************************************************************/
+
+  /** The remembered state of one file. */
+  private static class FileState {
+
+    /** The size of the file in bytes. */
+    long size;
+
+    /** The modification time of the file in epoch milliseconds. */
+    long modified;
+
+    /** The CRC32 of the file's content. */
+    long hash;
+
+    /** The CRC32 of the file's content when it was compiled, or NO_HASH. */
+    long compiledHash = NO_HASH;
+
+  }
+
+
+  /* ***************************************************************************
+   * CONSTRUCTOR
+   * **************************************************************************/
+
+  /**
+   * Creates a new index and reads in the stored one, if any.
+   *
+   * @param rudiFolder
+   *        The folder containing the .rudi files
+   * @param indexFile
+   *        The file the index is stored in
+   */
+  public RudiFileIndex(Path rudiFolder, Path indexFile) {
+    _rudiFolder = rudiFolder;
+    _indexFile = indexFile;
+    load();
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /**
+   * Updates the state of a file, hashing it if its size or modification time
+   * have changed.
+   *
+   * @param file
+   *        A .rudi file
+   * @param size
+   *        The file's current size
+   * @param modified
+   *        The file's current modification time
+   * @param compiled
+   *        The last modification time of the RuleLoc.yml, or -1, used if the
+   *        compiled content is not known
+   * @return True, if the file's content differs from the compiled one
+   */
+  public boolean update(Path file, long size, long modified, long compiled) {
+    FileState state = refresh(file, size, modified);
+    if (state.compiledHash == NO_HASH) {
+      if (compiled < 0) return false;
+      if (modified > compiled) return true;
+      state.compiledHash = state.hash;
+    }
+    return state.hash != state.compiledHash;
+  }
+
+  /**
+   * Updates the state of a file, reading its attributes.
+   *
+   * @see #update(Path, long, long, long)
+   */
+  public boolean update(Path file, long compiled) {
+    try {
+      BasicFileAttributes attrs = Files.readAttributes(file,
+              BasicFileAttributes.class);
+      return update(file, attrs.size(), attrs.lastModifiedTime().toMillis(),
+              compiled);
+    } catch (IOException e) {
+      log.error("Could not read " + file + ": " + e.getMessage());
+      return true;
+    }
+  }
+
+  /** @return The refreshed state of the given file */
+  private FileState refresh(Path file, long size, long modified) {
+    String key = _rudiFolder.relativize(file).toString();
+    FileState state = _states.get(key);
+    if (state == null) {
+      state = new FileState();
+      state.hash = NO_HASH;
+      _states.put(key, state);
+    }
+    if (state.hash == NO_HASH || state.size != size
+            || state.modified != modified) {
+      state.size = size;
+      state.modified = modified;
+      state.hash = hash(file);
+    }
+    return state;
+  }
+
+  /**
+   * Remembers the current content of the given files as compiled and forgets
+   * all other files.
+   *
+   * @param files
+   *        All existing .rudi files
+   */
+  public void setCompiled(Set<Path> files) {
+    HashMap<String, FileState> states = new HashMap<>();
+    for (Path file : files) {
+      try {
+        BasicFileAttributes attrs = Files.readAttributes(file,
+                BasicFileAttributes.class);
+        FileState state = refresh(file, attrs.size(),
+                attrs.lastModifiedTime().toMillis());
+        state.compiledHash = state.hash;
+        states.put(_rudiFolder.relativize(file).toString(), state);
+      } catch (IOException e) {
+        log.error("Could not read " + file + ": " + e.getMessage());
+      }
+    }
+    _states.clear();
+    _states.putAll(states);
+  }
+
+  /** @return The CRC32 of the given file's content, or NO_HASH */
+  private static long hash(Path file) {
+    try {
+      CRC32 crc = new CRC32();
+      crc.update(Files.readAllBytes(file));
+      return crc.getValue();
+    } catch (IOException e) {
+      log.error("Could not read " + file + ": " + e.getMessage());
+      return NO_HASH;
+    }
+  }
+
+  /** Reads in the stored index, if any. */
+  private void load() {
+    if (! Files.exists(_indexFile)) return;
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(_indexFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+      int n = in.readInt();
+      for (int i = 0; i < n; i++) {
+        String key = in.readUTF();
+        FileState state = new FileState();
+        state.size = in.readLong();
+        state.modified = in.readLong();
+        state.hash = in.readLong();
+        state.compiledHash = in.readLong();
+        _states.put(key, state);
+      }
+    } catch (EOFException e) {
+      log.warn("Truncated file index " + _indexFile);
+      _states.clear();
+    } catch (IOException e) {
+      log.warn("Could not read " + _indexFile + ": " + e.getMessage());
+      _states.clear();
+    }
+  }
+
+  /**
+   * Stores the index. Its current content is serialized on the calling
+   * thread and written to disk in the background.
+   *
+   * @return A future that is done when the index has been written
+   */
+  public Future<?> store() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(_states.size());
+      for (String key : _states.keySet()) {
+        FileState state = _states.get(key);
+        out.writeUTF(key);
+        out.writeLong(state.size);
+        out.writeLong(state.modified);
+        out.writeLong(state.hash);
+        out.writeLong(state.compiledHash);
+      }
+    } catch (IOException e) {
+      // can not happen with a ByteArrayOutputStream
+      throw new IllegalStateException(e);
+    }
+    byte[] content = bytes.toByteArray();
+    return WRITER.submit(() -> write(content));
+  }
+
+  /** Replaces the index file by the given content. */
+  private void write(byte[] content) {
+    Path temp = _indexFile.resolveSibling(_indexFile.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(_indexFile.getParent());
+      Files.write(temp, content);
+      Files.move(temp, _indexFile, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.warn("Could not write " + _indexFile + ": " + e.getMessage());
+    }
+  }
+
+}
@@ -20,15 +20,18 @@
 package de.dfki.mlt.rudibugger.view.fileTreeView;
 
 import static de.dfki.mlt.rudibugger.Constants.*;
-import static de.dfki.mlt.rudimant.common.Constants.*;
+import de.dfki.mlt.rudibugger.project.watchServices.RudiFolderScanner;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Stream;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.collections.ObservableList;
@@ -56,11 +59,8 @@ public class RudiHierarchy {
   /** Represents the project's RuleLoc.yml. */
   private final Path _ruleLocYaml;
 
-
-
-
-
-
+  /** Remembers the content of the .rudi files to detect modifications. */
+  private final RudiFileIndex _fileIndex;
 
   /** The root <code>TreeItem</code> of the Hierarchy. */
   private TreeItem _root;
@@ -87,13 +87,25 @@ public class RudiHierarchy {
    * **************************************************************************/
 
   /**
-   * TODO
+   * Creates the hierarchy from the result of scanning the rudiFolder.
+   *
+   * @param rudiFolder
+   *        The folder containing the .rudi files
+   * @param ruleLocYaml
+   *        The project's RuleLoc.yml
+   * @param entries
+   *        The folders and .rudi files found by a
+   *        <code>RudiFolderScanner</code>, every folder before its content
+   * @param fileIndex
+   *        The project's index of the .rudi files' contents
    */
-  public RudiHierarchy(Path rudiFolder, Path ruleLocYaml) {
+  public RudiHierarchy(Path rudiFolder, Path ruleLocYaml,
+          List<RudiFolderScanner.Entry> entries, RudiFileIndex fileIndex) {
     log.debug("Initializing the RudiFolderHierarchy...");
     _rudiFolder = rudiFolder;
     _ruleLocYaml = ruleLocYaml;
-    readInRudiFiles();
+    _fileIndex = fileIndex;
+    readInRudiFiles(entries);
     log.debug("Initialized the RudiFolderHierarchy.");
   }
 
@@ -115,101 +127,129 @@ public class RudiHierarchy {
    * **************************************************************************/
 
   /** Sorts the <code>TreeItem</code>s based on their lowercased file name. */
-  class RudiComparator implements Comparator<TreeItem> {
+  static class RudiComparator implements Comparator<TreeItem> {
     @Override
     public int compare(TreeItem ti1, TreeItem ti2) {
-      String item1 = ((RudiPath) ti1.getValue()).getPath().getFileName()
-              .toString().toLowerCase();
-      String item2 = ((RudiPath) ti2.getValue()).getPath().getFileName()
-              .toString().toLowerCase();
-      return item1.compareTo(item2);
+      return ((RudiPath) ti1.getValue()).getSortKey()
+              .compareTo(((RudiPath) ti2.getValue()).getSortKey());
     }
   }
 
+  /** Sorts the children of the hierarchy's folders. */
+  private static final RudiComparator RUDI_COMPARATOR = new RudiComparator();
+
   /**
-   * Reads in all <code>.rudi</code> files from the project's rudiFolder and
-   * adds them to the hierarchy.
+   * Adds all scanned <code>.rudi</code> files and folders of the project's
+   * rudiFolder to the hierarchy. The children of every folder are collected
+   * first and then sorted and added at once.
    */
-  private void readInRudiFiles() {
-    Stream<Path> stream;
-    try {
-      stream = Files.walk(_rudiFolder);
-    } catch (IOException e) {
-      log.error(e.toString());
-      return;
+  private void readInRudiFiles(List<RudiFolderScanner.Entry> entries) {
+    long compiled = getCompilationTime();
+    HashMap<Path, List<TreeItem>> children = new HashMap<>();
+    for (RudiFolderScanner.Entry e : entries) {
+      TreeItem ti = createTreeItem(e, compiled);
+      if (! e.path.equals(_rudiFolder))
+        children.computeIfAbsent(e.path.getParent(), k -> new ArrayList<>())
+                .add(ti);
     }
-    stream.forEach(x -> {
-      try {
-        if ((x.getFileName().toString().endsWith(RULE_FILE_EXTENSION)
-                || Files.isDirectory(x)) && ! Files.isHidden(x))
-          addFileToHierarchy(x.toAbsolutePath());
-      } catch (IOException e) {
-        log.error(e.toString());
-      }
+    children.forEach((folder, items) -> {
+      TreeItem folderItem = _folderMap.get(folder);
+      if (folderItem == null) return;
+      items.sort(RUDI_COMPARATOR);
+      folderItem.getChildren().setAll(items);
     });
+    _fileIndex.store();
 
-    /* Check if files are in sync */
-    Boolean notSynced = false;
-    for (Path p : _rudiPathMap.keySet()) {
-      if (_rudiPathMap.get(p).modifiedProperty().get()) {
+    updateSyncState();
+  }
+
+  /** Checks if files are in sync. */
+  private void updateSyncState() {
+    boolean notSynced = false;
+    for (RudiPath rp : _rudiPathSet) {
+      if (rp.modifiedProperty().get()) {
         notSynced = true;
+        break;
       }
     }
-    if (notSynced) modificationsAfterCompilationProperty()
-              .set(FILES_OUT_OF_SYNC);
-    else modificationsAfterCompilationProperty()
-              .set(FILES_SYNCED);
+    _modificationsAfterCompilation.set(notSynced ? FILES_OUT_OF_SYNC
+            : FILES_SYNCED);
   }
 
   /**
-   * Adds a newly appeared file to the rudiHierarchy.
+   * @return The last modification time of the RuleLoc.yml, or -1 if it does
+   * not exist
+   */
+  private long getCompilationTime() {
+    return Files.exists(_ruleLocYaml) ? _ruleLocYaml.toFile().lastModified()
+            : -1;
+  }
+
+  /**
+   * Creates the <code>TreeItem</code> of a file or folder and registers it,
+   * but does not link it to its parent folder's <code>TreeItem</code>.
    *
-   * @param f
+   * @param e
    *        A <code>.rudi</code> file or folder
+   * @param compiled
+   *        The last modification time of the RuleLoc.yml, or -1
    */
-  public void addFileToHierarchy(Path f) {
-    RudiPath rp = new RudiPath(f);
+  private TreeItem createTreeItem(RudiFolderScanner.Entry e, long compiled) {
+    Path f = e.path;
+    RudiPath rp = new RudiPath(f, e.folder);
     _rudiPathMap.put(f, rp);
-
+    TreeItem ti = new TreeItem(rp);
 
     /* A folder */
-    if (Files.isDirectory(f)) {
-      TreeItem ti = new TreeItem(rp);
+    if (e.folder) {
       if (f.equals(_rudiFolder)) {
         _root = ti;
       }
       _folderMap.put(f, ti);
-
-      /* link to the parent folder's TreeItem */
-      if (! f.equals(_rudiFolder)) {
-        Path parentDir = f.getParent();
-        _folderMap.get(parentDir).getChildren().add(ti);
-
-        /* sort the TreeItems, TODO: not efficient, but no easier way exists */
-        ObservableList<TreeItem> children = _folderMap.get(parentDir).getChildren();
-        children.sort(new RudiComparator());
-      }
     }
 
     /* A file */
     else {
       _rudiPathSet.add(rp);
-      Path dir = f.getParent();
-      TreeItem ti = new TreeItem(rp);
-      _folderMap.get(dir).getChildren().add(ti);
       _fileMap.put(f, ti);
 
       /* Check if modified since last compilation */
-      if (Files.exists(_ruleLocYaml))
-        if (rp.getPath().toFile().lastModified() >
-                _ruleLocYaml.toFile().lastModified())
-          rp.modifiedProperty().set(true);
+      if (_fileIndex.update(f, e.size, e.lastModified, compiled))
+        rp.modifiedProperty().set(true);
+    }
+    return ti;
+  }
 
+  /**
+   * Inserts a <code>TreeItem</code> into a sorted list of children, keeping
+   * it sorted.
+   */
+  private static void insertSorted(ObservableList<TreeItem> children,
+          TreeItem ti) {
+    int i = Collections.binarySearch(children, ti, RUDI_COMPARATOR);
+    children.add(i < 0 ? -i - 1 : i, ti);
+  }
 
-      /* sort the TreeItems, TODO: not efficient, but no easier way exists */
-      ObservableList<TreeItem> children = _folderMap.get(dir).getChildren();
-      children.sort(new RudiComparator());
+  /**
+   * Adds a newly appeared file to the rudiHierarchy.
+   *
+   * @param f
+   *        A <code>.rudi</code> file or folder
+   */
+  public void addFileToHierarchy(Path f) {
+    TreeItem ti;
+    try {
+      ti = createTreeItem(new RudiFolderScanner.Entry(f,
+              Files.readAttributes(f, BasicFileAttributes.class)),
+              getCompilationTime());
+    } catch (IOException e) {
+      log.error(e.toString());
+      return;
     }
+
+    /* link to the parent folder's TreeItem */
+    if (! f.equals(_rudiFolder))
+      insertSorted(_folderMap.get(f.getParent()).getChildren(), ti);
   }
 
   /**
@@ -230,39 +270,90 @@ public class RudiHierarchy {
     }
   }
 
-  /** Checks for deleted folders and removes them from the hierarchy */
-  public void removeObsoleteFolders() throws IOException {
-    Stream<Path> stream = Files.walk(_rudiFolder);
-    Set<Path> knownFolders = new HashSet(_folderMap.keySet());
-    Set<Path> actualFolders = new HashSet<>();
-    stream.forEach(x -> {
-      if (Files.isDirectory(x)) {
-        actualFolders.add(x);
-      }
-    });
-    knownFolders.removeAll(actualFolders);
+  /**
+   * Removes a folder and all its content from the hierarchy.
+   *
+   * @param folder
+   *        A known folder, but not the rudiFolder itself
+   */
+  private void removeFolderFromHierarchy(Path folder) {
+    TreeItem ti = _folderMap.get(folder);
+    if (ti.getParent() != null) ti.getParent().getChildren().remove(ti);
+    forgetTreeItem(ti);
+  }
 
-    for (Path y : knownFolders) {
-      _folderMap.get(y).getParent().getChildren().remove(_folderMap.get(y));
-      _folderMap.remove(y);
-      _rudiPathMap.remove(y);
-    }
-    for (RudiPath p : new HashSet<>(_rudiPathSet)) {
-      if (!Files.exists(p.getPath())) {
-        removeFromFileHierarchy(p.getPath());
+  /** Forgets a given TreeItem and all its children. */
+  private void forgetTreeItem(TreeItem ti) {
+    RudiPath rp = (RudiPath) ti.getValue();
+    _folderMap.remove(rp.getPath());
+    _fileMap.remove(rp.getPath());
+    _rudiPathMap.remove(rp.getPath());
+    _rudiPathSet.remove(rp);
+    ti.getChildren().forEach(c -> forgetTreeItem((TreeItem) c));
+  }
+
+  /**
+   * Applies a batch of changes in the rudiFolder. Paths that do not exist
+   * (anymore) or whose folder is unknown are skipped.
+   *
+   * @param added
+   *        The newly created <code>.rudi</code> files and folders
+   * @param removed
+   *        The deleted <code>.rudi</code> files and folders
+   * @param modified
+   *        The modified <code>.rudi</code> files and the files and folders
+   *        that have been deleted and created again
+   */
+  public void applyChanges(Set<Path> added, Set<Path> removed,
+          Set<Path> modified) {
+    for (Path p : removed) {
+      if (p.equals(_rudiFolder)) continue;
+      if (_folderMap.containsKey(p)) {
+        removeFolderFromHierarchy(p);
+        log.info("folder deleted: " + p);
+      } else if (_fileMap.containsKey(p)) {
+        removeFromFileHierarchy(p);
+        log.info("rudi file deleted: " + p);
       }
     }
-  }
 
-  /** Sets a file as modified since last compilation. */
-  public void setFileAsModified(Path file) {
-    _rudiPathMap.get(file).modifiedProperty().setValue(true);
-    if (_modificationsAfterCompilation.get() != FILES_OUT_OF_SYNC)
-      _modificationsAfterCompilation.setValue(FILES_OUT_OF_SYNC);
+    /* a folder that has been replaced loses its old content */
+    for (Path p : modified)
+      if (_folderMap.containsKey(p) && ! p.equals(_rudiFolder))
+        removeFolderFromHierarchy(p);
+
+    /* folders have to be added before their content */
+    List<Path> appeared = new ArrayList<>(added);
+    appeared.addAll(modified);
+    appeared.sort(Comparator.comparingInt(Path::getNameCount));
+    for (Path p : appeared) {
+      if (! Files.exists(p)) continue;
+      if (isFileInHierarchy(p)) {
+        log.info("rudi file has been modified : " + p);
+      } else if (_folderMap.containsKey(p.getParent())) {
+        addFileToHierarchy(p);
+        log.info("rudi file / folder added: " + p);
+      } else {
+        continue;
+      }
+      if (! Files.isDirectory(p)) {
+        _rudiPathMap.get(p).modifiedProperty()
+                .set(_fileIndex.update(p, getCompilationTime()));
+      }
+    }
+    _fileIndex.store();
+    updateSyncState();
   }
 
-  /** Sets all files as in sync with compiled code. */
+  /**
+   * Sets all files as in sync with compiled code and remembers their current
+   * content as the compiled one.
+   */
   public void setFilesUpToDate() {
+    Set<Path> files = new HashSet<>();
+    _rudiPathSet.forEach(rp -> files.add(rp.getPath()));
+    _fileIndex.setCompiled(files);
+    _fileIndex.store();
     resetFilesModifiedProperties();
     _modificationsAfterCompilation.setValue(FILES_SYNCED);
   }
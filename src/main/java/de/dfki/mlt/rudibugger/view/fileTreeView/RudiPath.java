@@ -46,6 +46,9 @@ public class RudiPath {
   /** Represents the path of the associated <code>.rudi</code> file. */
   private final Path _path;
 
+  /** The lowercased file name, used to sort the rudiTreeView. */
+  private final String _sortKey;
+
   /** Indicates the usage state of the associated <code>.rudi</code> file. */
   private final IntegerProperty _used;
 
@@ -70,8 +73,22 @@ public class RudiPath {
    *        The associated <code>.rudi</code> file
    */
   public RudiPath(Path path) {
+    this(path, Files.isDirectory(path));
+  }
+
+  /**
+   * Creates a new <code>RudiPath</code> object without accessing the file
+   * system.
+   *
+   * @param path
+   *        The associated <code>.rudi</code> file or folder
+   * @param folder
+   *        True, if the given path is a folder
+   */
+  public RudiPath(Path path, boolean folder) {
     _path = path;
-    if (Files.isDirectory(path)) {
+    _sortKey = path.getFileName().toString().toLowerCase();
+    if (folder) {
       _used = new SimpleIntegerProperty(IS_FOLDER);
     } else {
       _used = new SimpleIntegerProperty(FILE_NOT_USED);
@@ -129,6 +146,9 @@ public class RudiPath {
   /** @return The <code>Path</code> of the associated <code>.rudi</code> file */
   public Path getPath() { return _path; }
 
+  /** @return The lowercased file name, used for sorting */
+  public String getSortKey() { return _sortKey; }
+
   /**
    * @return Indicates if the associated <code>.rudi</code> file has been
    * modified since the last successful compilation
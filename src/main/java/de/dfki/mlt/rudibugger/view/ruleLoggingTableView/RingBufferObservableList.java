@@ -0,0 +1,186 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.view.ruleLoggingTableView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import javafx.collections.ObservableListBase;
+
+/**
+ * An <code>ObservableList</code> with a fixed capacity, backed by a ring
+ * buffer. New elements are inserted at the front (index 0 is always the
+ * newest element) in constant time. If the capacity is exceeded, the oldest
+ * elements at the end of the list are evicted.
+ *
+ * Only insertions at index 0, <code>setAll</code> and <code>clear</code> are
+ * supported. The list is never sorted in place, other orders are provided by
+ * a <code>SortedList</code> on top of it.
+ *
+ * @param <E> The type of the elements
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class RingBufferObservableList<E> extends ObservableListBase<E> {
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** Contains the elements. */
+  private final Object[] _buffer;
+
+  /** The position in the buffer the next (newest) element will be put at. */
+  private int _head = 0;
+
+  /** The number of elements currently in the list. */
+  private int _size = 0;
+
+
+  /* ***************************************************************************
+   * CONSTRUCTOR
+   * **************************************************************************/
+
+  /**
+   * Creates a new empty list.
+   *
+   * @param capacity
+   *        The maximum number of elements kept in the list
+   */
+  public RingBufferObservableList(int capacity) {
+    if (capacity < 1)
+      throw new IllegalArgumentException("Capacity must be positive: "
+              + capacity);
+    _buffer = new Object[capacity];
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /** @return The maximum number of elements kept in the list */
+  public int getCapacity() { return _buffer.length; }
+
+  /** Maps a list index to a position in the buffer. */
+  private int position(int index) {
+    int pos = _head - 1 - index;
+    return pos < 0 ? pos + _buffer.length : pos;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    if (index < 0 || index >= _size)
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+              + _size);
+    return (E) _buffer[position(index)];
+  }
+
+  @Override
+  public int size() { return _size; }
+
+  /**
+   * Puts an element in front of all others without firing a change. If the
+   * buffer is full, the oldest element is overwritten.
+   */
+  private void push(E e) {
+    if (_size < _buffer.length) _size++;
+    _buffer[_head] = e;
+    _head = (_head + 1) % _buffer.length;
+  }
+
+  @Override
+  public void add(int index, E element) {
+    if (index != 0)
+      throw new UnsupportedOperationException("Can only insert at index 0.");
+    beginChange();
+    if (_size == _buffer.length)
+      nextRemove(_size - 1, get(_size - 1));
+    push(element);
+    nextAdd(0, 1);
+    endChange();
+  }
+
+  /**
+   * Inserts all elements at the front. The first element of the given
+   * collection will be the first element of the list afterwards.
+   */
+  @Override
+  public boolean addAll(int index, Collection<? extends E> c) {
+    if (index != 0)
+      throw new UnsupportedOperationException("Can only insert at index 0.");
+    if (c.isEmpty()) return false;
+
+    /* Only the newest elements fitting in the buffer are relevant */
+    List<E> newestFirst = new ArrayList<>(c);
+    int added = Math.min(newestFirst.size(), _buffer.length);
+    int evicted = Math.max(0, _size + added - _buffer.length);
+
+    beginChange();
+    if (evicted > 0) {
+      List<E> removed = new ArrayList<>(subList(_size - evicted, _size));
+      nextRemove(_size - evicted, removed);
+    }
+    for (int i = added - 1; i >= 0; --i) push(newestFirst.get(i));
+    nextAdd(0, added);
+    endChange();
+    return true;
+  }
+
+  /**
+   * Replaces all elements. The first element of the given collection will be
+   * the first element of the list afterwards.
+   */
+  @Override
+  public boolean setAll(Collection<? extends E> c) {
+    List<E> removed = new ArrayList<>(this);
+    resetBuffer();
+    Iterator<? extends E> it = c.iterator();
+    List<E> kept = new ArrayList<>(Math.min(c.size(), _buffer.length));
+    while (it.hasNext() && kept.size() < _buffer.length) kept.add(it.next());
+    for (int i = kept.size() - 1; i >= 0; --i) push(kept.get(i));
+
+    beginChange();
+    if (! removed.isEmpty()) nextRemove(0, removed);
+    if (_size > 0) nextAdd(0, _size);
+    endChange();
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    if (_size == 0) return;
+    List<E> removed = new ArrayList<>(this);
+    resetBuffer();
+    beginChange();
+    nextRemove(0, removed);
+    endChange();
+  }
+
+  /** Empties the buffer without firing a change. */
+  private void resetBuffer() {
+    for (int i = 0; i < _buffer.length; i++) _buffer[i] = null;
+    _head = 0;
+    _size = 0;
+  }
+
+}
@@ -24,13 +24,17 @@ import de.dfki.mlt.rudibugger.rpc.LogData;
 import de.dfki.mlt.rudibugger.project.Project;
 import de.dfki.mlt.rudibugger.project.VondaRuntimeConnection;
 import de.dfki.mlt.rudibugger.project.ruleModel.RuleInfoExtended;
-import static de.dfki.mlt.rudibugger.view.ruleLoggingTableView.TimestampCellFactory.dt;
 import java.util.ArrayList;
-import javafx.application.Platform;
-import javafx.beans.value.ChangeListener;
-import javafx.collections.FXCollections;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
+import javafx.collections.transformation.TransformationList;
+import javafx.beans.value.ChangeListener;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableColumn.SortType;
 import javafx.scene.control.TableView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,9 +56,76 @@ public class RuleLoggingTableViewController {
   private VondaRuntimeConnection _vonda;
   private Project _project;
 
-  /** Represents the list of logged rules. */
-  private final ObservableList<LogData> ruleLoggingList
-          = FXCollections.observableArrayList();
+  /**
+   * Represents the list of logged rules (newest first). Its capacity is
+   * limited, the oldest entries are evicted.
+   */
+  private RingBufferObservableList<LogData> ruleLoggingList;
+
+  /**
+   * Represents the list shown in the table if it is sorted by anything but
+   * the default order (newest first). It keeps itself ordered by the table's
+   * comparator as new entries arrive, which costs linear time per entry.
+   * Null if the table shows the ruleLoggingList directly.
+   */
+  private SortedList<LogData> sortedRuleLoggingList;
+
+  /** Connects the sortedRuleLoggingList to the ruleLoggingList. */
+  private SourceRelay<LogData> sortedListSource;
+
+
+  /* ***************************************************************************
+   * SUBCLASSES
+   * **************************************************************************/
+
+  /**
+   * Passes the changes of a list on until it is detached. A
+   * <code>SortedList</code> can not be disconnected from its source, it
+   * stops following it only when it has been garbage collected. Placed in
+   * between, this relay lets the sorted list stop working immediately.
+   */
+  private static class SourceRelay<E> extends TransformationList<E, E> {
+
+    /** Indicates whether changes are no longer passed on. */
+    private boolean _detached = false;
+
+    private SourceRelay(ObservableList<E> source) { super(source); }
+
+    /** Stops passing on the changes of the source. */
+    private void detach() { _detached = true; }
+
+    @Override
+    protected void sourceChanged(ListChangeListener.Change<? extends E> c) {
+      if (_detached) return;
+      beginChange();
+      while (c.next()) {
+        if (c.wasPermutated()) {
+          int[] perm = new int[c.getTo() - c.getFrom()];
+          for (int i = c.getFrom(); i < c.getTo(); i++)
+            perm[i - c.getFrom()] = c.getPermutation(i);
+          nextPermutation(c.getFrom(), c.getTo(), perm);
+        } else if (c.wasUpdated()) {
+          for (int i = c.getFrom(); i < c.getTo(); i++) nextUpdate(i);
+        } else {
+          if (c.wasRemoved()) nextRemove(c.getFrom(), c.getRemoved());
+          if (c.wasAdded()) nextAdd(c.getFrom(), c.getTo());
+        }
+      }
+      endChange();
+    }
+
+    @Override
+    public E get(int index) { return getSource().get(index); }
+
+    @Override
+    public int size() { return getSource().size(); }
+
+    @Override
+    public int getSourceIndex(int index) { return index; }
+
+    @Override
+    public int getViewIndex(int index) { return index; }
+  }
 
 
   /* ***************************************************************************
@@ -84,9 +155,13 @@ public class RuleLoggingTableViewController {
     _ruleLoggingTableView = tw;
     _vonda = project.vonda;
     _project = project;
+    ruleLoggingList = new RingBufferObservableList<>(
+            globalConf.getRuleLoggingCapacity());
+    LogData.setHighResolutionTimestamps(
+            globalConf.getHighResolutionTimestamps());
 
     initRuleLoggingTableView(globalConf);
-    _vonda.logOutputProperty().addListener(incomingRuleLogListener);
+    _vonda.logBatchProperty().addListener(incomingRuleLogListener);
 
     /* this listener updates the timeStampIndex setting in the tableView */
     globalConf.timeStampIndexProperty().addListener(cl -> {
@@ -95,13 +170,18 @@ public class RuleLoggingTableViewController {
   }
 
 
-  /** Adds new ruleLogging output to the ruleLoggingList. */
-  private final ChangeListener<LogData> incomingRuleLogListener = ((o, ov, nv) -> {
+  /**
+   * Adds a new batch of ruleLogging output to the ruleLoggingList. The batches
+   * are already published on the JavaFX thread. No sorting is needed, the
+   * ruleLoggingList is ordered newest first and the sortedRuleLoggingList, if
+   * present, inserts the new entries at their place.
+   */
+  private final ChangeListener<List<LogData>> incomingRuleLogListener
+          = ((o, ov, nv) -> {
     if (nv != null) {
-      Platform.runLater(() -> {
-        ruleLoggingList.add(0, nv);
-        _ruleLoggingTableView.sort();
-      });
+      List<LogData> newestFirst = new ArrayList<>(nv);
+      Collections.reverse(newestFirst);
+      ruleLoggingList.addAll(0, newestFirst);
     }
   });
 
@@ -128,7 +208,7 @@ public class RuleLoggingTableViewController {
   private void initLabelColumn(TableColumn<LogData, LogData.StringPart> tc) {
     tc.setText("Label");
     tc.setPrefWidth(180.0);
-    tc.setCellValueFactory(v -> v.getValue().label);
+    tc.setCellValueFactory(v -> v.getValue().labelProperty());
     tc.setCellFactory(v -> new LabelCellFactory());
     tc.setComparator((x, y) -> x.content.compareTo(y.content));
     tc.widthProperty().addListener(v -> adaptTableViewColumns());
@@ -138,7 +218,8 @@ public class RuleLoggingTableViewController {
     TableColumn<LogData, ArrayList<LogData.StringPart>> tc) {
 
     tc.setText("Evaluated");
-    tc.setCellValueFactory(v -> v.getValue().evaluatedRuleParts);
+    tc.setCellValueFactory(
+        v -> v.getValue().evaluatedRulePartsProperty());
     tc.setCellFactory(v -> new EvaluatedCellFactory());
     tc.widthProperty().addListener(v -> adaptTableViewColumns());
   }
@@ -146,13 +227,9 @@ public class RuleLoggingTableViewController {
   private void initTimeColumn(TableColumn<LogData, LogData.DatePart> tc,
       boolean showTimestamp) {
     tc.setText("Time");
-    tc.setCellValueFactory(v -> v.getValue().timestamp);
+    tc.setCellValueFactory(v -> v.getValue().timestampProperty());
     tc.setCellFactory(v -> new TimestampCellFactory(showTimestamp));
-    tc.setComparator((x, y) -> (
-            dt.format(x.date) + Integer.toString(x.counter))
-            .compareToIgnoreCase(
-            dt.format(y.date) + Integer.toString(y.counter))
-    );
+    tc.setComparator((x, y) -> Long.compare(x.sequence, y.sequence));
     tc.widthProperty().addListener((cl, ov, nv) -> adaptTableViewColumns());
   }
 
@@ -164,7 +241,12 @@ public class RuleLoggingTableViewController {
 
     _ruleLoggingTableView.getColumns().addAll(
       _timeColumn, _labelColumn, _evaluatedColumn);
+    /* the table only re-sorts if the user changes the sort order */
     _ruleLoggingTableView.setItems(ruleLoggingList);
+    _ruleLoggingTableView.setSortPolicy(t -> {
+      updateSortOrder();
+      return true;
+    });
 
     /* set cell height of TableView */
     _ruleLoggingTableView.setFixedCellSize(
@@ -178,7 +260,39 @@ public class RuleLoggingTableViewController {
 
     /* Jump to selected rule. */
     _ruleLoggingTableView.getSelectionModel().selectedItemProperty()
-      .addListener((o, ov, nv) -> openRule(((LogData) nv).getRuleId()));
+      .addListener((o, ov, nv) -> {
+        if (nv != null) openRule(((LogData) nv).getRuleId());
+      });
+  }
+
+  /**
+   * Shows the ruleLoggingList directly if the table is not sorted or sorted
+   * newest first, else a sorted view of it. Replaces the table's default sort
+   * policy, which would sort the ruleLoggingList itself.
+   */
+  @SuppressWarnings("unchecked")
+  private void updateSortOrder() {
+    List<TableColumn> sortOrder = _ruleLoggingTableView.getSortOrder();
+    boolean defaultOrder = sortOrder.isEmpty()
+            || (sortOrder.size() == 1 && sortOrder.get(0) == _timeColumn
+                && _timeColumn.getSortType() == SortType.DESCENDING);
+    if (defaultOrder) {
+      if (sortedRuleLoggingList == null) return;
+      _ruleLoggingTableView.setItems(ruleLoggingList);
+      sortedListSource.detach();
+      sortedListSource = null;
+      sortedRuleLoggingList = null;
+      return;
+    }
+    Comparator<LogData> comparator = _ruleLoggingTableView.getComparator();
+    if (sortedRuleLoggingList == null) {
+      sortedListSource = new SourceRelay<>(ruleLoggingList);
+      sortedRuleLoggingList = new SortedList<>(sortedListSource);
+      _ruleLoggingTableView.setItems(sortedRuleLoggingList);
+    }
+    /* the table's comparator may stay the same when only the sort type of a
+       column changed, a new instance makes the list sort again */
+    sortedRuleLoggingList.setComparator(comparator::compare);
   }
 
   private void openRule(int ruleId) {
@@ -21,7 +21,7 @@ package de.dfki.mlt.rudibugger.view.ruleLoggingTableView;
 
 import de.dfki.mlt.rudibugger.rpc.LogData;
 import de.dfki.mlt.rudibugger.rpc.LogData.DatePart;
-import java.text.SimpleDateFormat;
+import java.util.TimeZone;
 import javafx.scene.control.TableCell;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
@@ -52,8 +52,35 @@ public class TimestampCellFactory extends TableCell<LogData, DatePart> {
    */
   private final boolean _timeStampIndex;
 
-  /** Represents the current date at the time of creation. */
-  public static SimpleDateFormat dt = new SimpleDateFormat("HH:mm:ss.SSS");
+  /**
+   * Formats a time as HH:mm:ss.SSS in the local time zone, followed by the
+   * microseconds and nanoseconds if available.
+   *
+   * @param time
+   *        The time in epoch milliseconds
+   * @param nanos
+   *        The nanoseconds within the millisecond, or -1
+   * @return The formatted time
+   */
+  public static String formatTime(long time, int nanos) {
+    long local = time + TimeZone.getDefault().getOffset(time);
+    int millisOfDay = (int) Math.floorMod(local, 86400000L);
+    StringBuilder sb = new StringBuilder(16);
+    appendPadded(sb, millisOfDay / 3600000, 2).append(':');
+    appendPadded(sb, millisOfDay / 60000 % 60, 2).append(':');
+    appendPadded(sb, millisOfDay / 1000 % 60, 2).append('.');
+    appendPadded(sb, millisOfDay % 1000, 3);
+    if (nanos >= 0) appendPadded(sb, nanos, 6);
+    return sb.toString();
+  }
+
+  /** Appends a number, padded with leading zeros to the given width. */
+  private static StringBuilder appendPadded(StringBuilder sb, int value,
+          int width) {
+    for (int limit = 10, i = 1; i < width; i++, limit *= 10)
+      if (value < limit) sb.append('0');
+    return sb.append(value);
+  }
 
   @Override
     protected void updateItem(DatePart item, boolean empty) {
@@ -65,10 +92,11 @@ public class TimestampCellFactory extends TableCell<LogData, DatePart> {
       } else {
         TextFlow textFlow = new TextFlow();
         Text t;
+        String time = formatTime(item.time, item.nanos);
         if (_timeStampIndex) {
-          t = new Text(dt.format(item.date) + " / " + item.counter);
+          t = new Text(time + " / " + item.counter);
         } else {
-          t = new Text(dt.format(item.date));
+          t = new Text(time);
         }
         textFlow.getChildren().add(t);
         setGraphic(textFlow);
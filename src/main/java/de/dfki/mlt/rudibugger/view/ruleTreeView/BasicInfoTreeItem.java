@@ -0,0 +1,99 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+
+package de.dfki.mlt.rudibugger.view.ruleTreeView;
+
+import de.dfki.mlt.rudimant.common.BasicInfo;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.control.TreeItem;
+
+/**
+ * A <code>TreeItem</code> of the ruleTreeView that creates the items of its
+ * children only when it is expanded for the first time (or when explicitly
+ * asked to). Until then, its children list is empty, but it does not present
+ * itself as a leaf if its rule or import has children.
+ *
+ * Code walking the ruleTreeView via <code>getChildren()</code> therefore only
+ * sees the materialized part of the tree; the rest is still described by the
+ * <code>BasicInfo</code> values.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class BasicInfoTreeItem extends TreeItem<BasicInfo> {
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** Indicates whether the children's items have been created. */
+  private boolean _materialized = false;
+
+
+  /* ***************************************************************************
+   * CONSTRUCTOR
+   * **************************************************************************/
+
+  /**
+   * Creates a new item, its children are created on first expansion.
+   *
+   * @param bi
+   *        The rule or import represented by this item
+   */
+  public BasicInfoTreeItem(BasicInfo bi) {
+    super(bi);
+    expandedProperty().addListener((o, ov, nv) -> {
+      if (nv) materialize();
+    });
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /**
+   * Creates the items of the children, if not done yet. They are not
+   * expanded.
+   */
+  public void materialize() {
+    if (_materialized) return;
+    _materialized = true;
+    List<BasicInfo> infos = getValue().getChildren();
+    if (infos.isEmpty()) return;
+    List<BasicInfoTreeItem> children = new ArrayList<>(infos.size());
+    for (BasicInfo child : infos) children.add(new BasicInfoTreeItem(child));
+    getChildren().setAll(children);
+  }
+
+  /** @return True, if the items of the children have been created */
+  public boolean isMaterialized() { return _materialized; }
+
+  /**
+   * @return True, if the represented rule or import has no children, whether
+   * their items have been created or not
+   */
+  @Override
+  public boolean isLeaf() {
+    return _materialized ? getChildren().isEmpty()
+            : getValue().getChildren().isEmpty();
+  }
+
+}
@@ -20,7 +20,15 @@ package de.dfki.mlt.rudibugger.view.ruleTreeView;
 
 import de.dfki.mlt.rudibugger.DataModel;
 import de.dfki.mlt.rudibugger.project.Project;
+import de.dfki.mlt.rudibugger.project.ruleModel.ImportInfoExtended;
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleInfoExtended;
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
 import de.dfki.mlt.rudimant.common.BasicInfo;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.TreeItem;
@@ -97,6 +105,12 @@ public class RuleTreeViewController {
         log.debug("ruleTreeView has been resetted, RuleModel has been removed.");
       }
     });
+    project.ruleModelRevisionProperty().addListener((o, ov, nv) -> {
+      if (project.getRuleModel() != null && ruleTreeView.getRoot() != null) {
+        log.debug("RuleModel updated in place, patching ruleTreeView...");
+        patchRuleTreeView(project.getRuleModel());
+      }
+    });
   }
 
 
@@ -111,21 +125,86 @@ public class RuleTreeViewController {
    * METHODS
    * **************************************************************************/
 
-  /** Builds the ruleTreeView. */
+  /**
+   * Builds the ruleTreeView. Only the given item is created, the items of its
+   * children are created when it is expanded.
+   */
   private static TreeItem buildRuleTreeView(BasicInfo bi) {
-    TreeItem treeItem = new TreeItem(bi);
-    bi.getChildren().forEach(o ->
-      treeItem.getChildren().add(buildRuleTreeView(o)));
-    return treeItem;
+    return new BasicInfoTreeItem(bi);
+  }
+
+  /**
+   * Patches the ruleTreeView after the RuleModel has been updated in place:
+   * only the <code>TreeItem</code>s of restructured imports get new
+   * children, all other items (and their expansion state) are kept. Imports
+   * whose children have not been materialized yet need no patching.
+   */
+  private void patchRuleTreeView(RuleModel ruleModel) {
+    Map<BasicInfo, TreeItem> items = new IdentityHashMap<>();
+    collectTreeItems(ruleTreeView.getRoot(), items);
+    for (ImportInfoExtended ii : ruleModel.getRestructuredImports()) {
+      TreeItem item = items.get(ii);
+      if (item == null || ! ((BasicInfoTreeItem) item).isMaterialized())
+        continue;
+      Map<Integer, Boolean> expanded = new HashMap<>();
+      item.getChildren().forEach(c ->
+        collectExpandedRules((TreeItem) c, expanded));
+      List<TreeItem> children = new ArrayList<>();
+      for (BasicInfo child : ii.getChildren()) {
+        TreeItem childItem = items.get(child);
+        if (childItem == null) {
+          childItem = buildRuleTreeView(child);
+          restoreExpandedRules(childItem, expanded);
+        }
+        children.add(childItem);
+      }
+      item.getChildren().setAll(children);
+    }
+    /* labels and lines may have changed in place */
+    ruleTreeView.refresh();
   }
 
-  /** Expands a given TreeItem and all its children. */
+  /** Maps the values of a given TreeItem and its children to their items. */
+  private static void collectTreeItems(TreeItem item,
+          Map<BasicInfo, TreeItem> items) {
+    items.put((BasicInfo) item.getValue(), item);
+    item.getChildren().forEach(c -> collectTreeItems((TreeItem) c, items));
+  }
+
+  /** Remembers the expansion state of the rules below a given TreeItem. */
+  private static void collectExpandedRules(TreeItem item,
+          Map<Integer, Boolean> expanded) {
+    if (! (item.getValue() instanceof RuleInfoExtended)) return;
+    expanded.put(((RuleInfoExtended) item.getValue()).getId(),
+            item.isExpanded());
+    item.getChildren().forEach(c ->
+      collectExpandedRules((TreeItem) c, expanded));
+  }
+
+  /** Restores the expansion state of the rules below a given TreeItem. */
+  private static void restoreExpandedRules(TreeItem item,
+          Map<Integer, Boolean> expanded) {
+    if (item.getValue() instanceof RuleInfoExtended) {
+      Boolean e = expanded.get(((RuleInfoExtended) item.getValue()).getId());
+      if (e != null) item.setExpanded(e);
+    }
+    item.getChildren().forEach(c ->
+      restoreExpandedRules((TreeItem) c, expanded));
+  }
+
+  /**
+   * Expands a given TreeItem and all its children, creating the items of all
+   * children on the way.
+   */
   private static void expandTreeItems(TreeItem item) {
     item.setExpanded(true);
     item.getChildren().forEach(c -> expandTreeItems((TreeItem) c));
   }
 
-  /** Collapses a given TreeItem and all its children. */
+  /**
+   * Collapses a given TreeItem and all its children. Items that have never
+   * been materialized are collapsed already.
+   */
   private static void collapseTreeItems(TreeItem item) {
     item.setExpanded(false);
     item.getChildren().forEach(c -> collapseTreeItems((TreeItem) c));
@@ -22,32 +22,52 @@ package de.dfki.mlt.rudibugger.view.ruleTreeView;
 import de.dfki.mlt.rudibugger.project.ruleModel.ImportInfoExtended;
 import de.dfki.mlt.rudibugger.project.ruleModel.RuleInfoExtended;
 import de.dfki.mlt.rudimant.common.BasicInfo;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.AbstractConstruct;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
 
 /**
  * Represents a complete RuleModel's state. It includes
  *  - the logging state of every known rule,
- *  - the expansion state of every item in the ruleTreeView, and
+ *  - the expansion state of every rule and import in the ruleTreeView, and
  *  - the scrollbar position in the ruleTreeView. //TODO
  *
  * It can be loaded from another file or saved for further use.
  *
- * Furthermore, it never forgets, meaning that a rule that ever appeared under
- * certain circumstances will be remembered forever. This is useful if a certain
- * Import has not been used for a while but the selection of its rules should be
- * used in the future. Using that Import again will also re-enable its
- * selections.
+ * Rules are identified by their id, imports by their path relative to the
+ * .rudi folder. The rules' states are kept in a flat array indexed by the
+ * rule id, so that both retrieving and applying a state only need a single
+ * walk over the ruleTreeView.
+ *
+ * Saved states are read as plain YAML and only rule ids of the current
+ * <code>RuleModel</code> are taken over. States saved in the former nested
+ * format (items identified by their labels) are still understood.
  *
  * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
  */
@@ -55,19 +75,24 @@ public class RuleTreeViewState {
 
   static Logger log = LoggerFactory.getLogger("RuleModel");
 
-  private static final Yaml YAML = new Yaml(
-    new DumperOptions() {{
-      setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-    }}
-  );
+  private static final Yaml YAML = createDumper();
+
+  /** Marks a rule id whose state is not known. */
+  private static final int UNKNOWN = -1;
 
 
   /* ***************************************************************************
    * FIELDS
    * **************************************************************************/
 
-  /** Root item of RuleTreeViewState structure. */
-  private RuleTreeViewStateItem _root;
+  /** Maps rule ids to their logging state, or <code>UNKNOWN</code>. */
+  private int[] _rules = new int[0];
+
+  /** Contains the ids of the expanded rules. */
+  private BitSet _expandedRules = new BitSet();
+
+  /** Maps the paths of imports to their expansion state. */
+  private HashMap<String, Boolean> _imports = new HashMap<>();
 
 
   /* ***************************************************************************
@@ -77,6 +102,15 @@ public class RuleTreeViewState {
   /** Creates a new RuleModelState. */
   private RuleTreeViewState() {}
 
+  /** @return The YAML instance used to save states */
+  private static Yaml createDumper() {
+    DumperOptions options = new DumperOptions();
+    options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+    /* the state is only written as a bean, it is read as plain YAML */
+    options.setAllowReadOnlyProperties(true);
+    return new Yaml(options);
+  }
+
 
   /* ***************************************************************************
    * RETRIEVE AND SET STATE METHODS
@@ -84,133 +118,129 @@ public class RuleTreeViewState {
 
   /** Retrieves the state of a given TreeView. */
   public static RuleTreeViewState retrieveStateOf(TreeView tw) {
-
     RuleTreeViewState rms = new RuleTreeViewState();
-
-    /* Get root TreeItem of given TreeView */
-    TreeItem<ImportInfoExtended> root = tw.getRoot();
-
-    rms._root = new RuleTreeViewStateItem(root.getValue().getLabel(),
-            root.isExpanded(), root.getValue().getState());
-    rms._root.isImport(true);
-
-    /* Create children and add them */
-    rms._root.addChildren(retrieveStateOfHelper(root, rms._root));
-
+    if (tw.getRoot() != null) rms.retrieve(tw.getRoot());
     return rms;
-
   }
 
   /** Helper function of <code>retrieveStateOf</code>. */
-  private static HashMap<String, RuleTreeViewStateItem>
-          retrieveStateOfHelper(TreeItem tempItem,
-            RuleTreeViewStateItem ruleItem) {
-
-    /* The returned RuleTreeViewStateItems */
-    HashMap<String, RuleTreeViewStateItem> map = new HashMap<>();
-
-    /* Iterate over the children */
-    for (Object child : tempItem.getChildren()) {
-      RuleTreeViewStateItem ruleStateItem;
-
-      TreeItem<BasicInfo> item = (TreeItem) child;
-
-      if (((TreeItem) child).getValue() instanceof RuleInfoExtended) {
-        RuleInfoExtended itemValue
-                = (RuleInfoExtended) ((TreeItem) child).getValue();
-
-        /* Is the child already known? if not: create a new one */
-        if (ruleItem.getChildrenNames().contains(item.getValue().getLabel())) {
-          ruleStateItem = ruleItem.getChild(item.getValue().getLabel());
-          ruleStateItem.setState(
-                  item.isExpanded(), itemValue.getState()
-          );
-        } else {
-          ruleStateItem = new RuleTreeViewStateItem(item.getValue().getLabel(),
-                  item.isExpanded(), itemValue.getState());
-
-          /* If it is an import, mark it */
-          if (item.getValue() instanceof ImportInfoExtended) {
-            ruleStateItem.isImport(true);
-          }
-        }
-      }
-
-      else {
-        ImportInfoExtended itemValue
-                = (ImportInfoExtended) ((TreeItem) child).getValue();
-
-        /* Is the child already known? if not: create a new one */
-        if (ruleItem.getChildrenNames().contains(item.getValue().getLabel())) {
-          ruleStateItem = ruleItem.getChild(item.getValue().getLabel());
-          ruleStateItem.setState(
-                  item.isExpanded(), itemValue.getState()
-          );
-        } else {
-          ruleStateItem = new RuleTreeViewStateItem(item.getValue().getLabel(),
-                  item.isExpanded(), itemValue.getState());
-
-          /* If it is an import, mark it */
-          if (item.getValue() instanceof ImportInfoExtended) {
-            ruleStateItem.isImport(true);
-          }
-        }
-      }
-
-      /* Create children and add them */
-      ruleStateItem.addChildren(retrieveStateOfHelper(item, ruleStateItem));
-
-      /* Add them to the returned set */
-      map.put(item.getValue().getLabel(), ruleStateItem);
+  private void retrieve(TreeItem item) {
+    BasicInfo bi = (BasicInfo) item.getValue();
+    put(bi, item.isExpanded());
+
+    /* The children's items have not been created, use the rule structure */
+    if (item instanceof BasicInfoTreeItem
+            && ! ((BasicInfoTreeItem) item).isMaterialized()) {
+      for (BasicInfo child : bi.getChildren()) retrieve(child);
+      return;
     }
-    return map;
+    for (Object child : item.getChildren()) retrieve((TreeItem) child);
   }
 
-  /** Applies a given state to a given TreeView */
-  public static void setStateOf(RuleTreeViewState rms, TreeView tw) {
-
-    /* Get root TreeItem of TreeView */
-    TreeItem<ImportInfoExtended> root = (TreeItem) tw.getRoot();
-
-    /* Has this item already appeared once? */
-    if (root.getValue().getLabel().equals(rms.getRoot().getLabel())) {
+  /**
+   * Helper function of <code>retrieveStateOf</code> for the part of the
+   * ruleTreeView that has no items yet, i.e. is completely collapsed.
+   */
+  private void retrieve(BasicInfo bi) {
+    put(bi, false);
+    for (BasicInfo child : bi.getChildren()) retrieve(child);
+  }
 
-      /* Set the expansion state */
-      root.setExpanded(rms.getRoot().getProps().getIsExpanded());
+  /** Remembers the state of a given rule or import. */
+  private void put(BasicInfo bi, boolean expanded) {
+    put(bi, expanded, bi instanceof RuleInfoExtended
+            ? ((RuleInfoExtended) bi).getState() : UNKNOWN);
+  }
 
-      /* Iterate over the children */
-      for (Object x : root.getChildren()) {
-        TreeItem y = (TreeItem) x;
-        setStateOfHelper(y, rms.getRoot());
+  /**
+   * Remembers the state of a given rule or import.
+   *
+   * @param state
+   *        The logging state of the rule, ignored for imports
+   */
+  private void put(BasicInfo bi, boolean expanded, int state) {
+    if (bi instanceof RuleInfoExtended) {
+      int id = ((RuleInfoExtended) bi).getId();
+      if (id < 0) return;
+      if (id >= _rules.length) {
+        int oldLength = _rules.length;
+        _rules = Arrays.copyOf(_rules, Math.max(id + 1, 2 * oldLength));
+        Arrays.fill(_rules, oldLength, _rules.length, UNKNOWN);
       }
+      _rules[id] = state;
+      _expandedRules.set(id, expanded);
+    } else {
+      _imports.put(((ImportInfoExtended) bi).getFilePath(), expanded);
     }
-
   }
 
-  /** Helper function of <code>setStateOf()</code>. */
-  private static void setStateOfHelper(TreeItem<BasicInfo> obj,
-          RuleTreeViewStateItem item) {
+  /** @return The logging state of the given rule, or <code>UNKNOWN</code> */
+  private int getRule(int id) {
+    return id >= 0 && id < _rules.length ? _rules[id] : UNKNOWN;
+  }
 
-    String lab = obj.getValue().getLabel();
+  /**
+   * @return The expansion state of a given rule or import, or null if it is
+   * not known
+   */
+  private Boolean isExpanded(BasicInfo bi) {
+    if (bi instanceof RuleInfoExtended) {
+      int id = ((RuleInfoExtended) bi).getId();
+      return getRule(id) == UNKNOWN ? null : _expandedRules.get(id);
+    }
+    return _imports.get(((ImportInfoExtended) bi).getFilePath());
+  }
 
-    /* Has this TreeItem already appeared once? */
-    if (item.getChildrenNames().contains(lab)) {
+  /** Applies a given state to a given TreeView */
+  public static void setStateOf(RuleTreeViewState rms, TreeView tw) {
+    TreeItem root = tw.getRoot();
+    if (root == null) return;
 
-      /* Set the expansion state */
-      obj.setExpanded(item.getChild(lab).getProps().getIsExpanded());
+    /* Set the logging states, find the parts that contain expanded items */
+    Set<BasicInfo> expandedBelow
+            = Collections.newSetFromMap(new IdentityHashMap<>());
+    rms.applyLoggingStates((BasicInfo) root.getValue(), expandedBelow);
 
-      /* If this is a rule, also set the log state */
-      if (obj.getValue() instanceof RuleInfoExtended) {
-        RuleInfoExtended rule = (RuleInfoExtended) obj.getValue();
-        rule.setState(item.getChild(lab).getProps().getLoggingState());
-      }
+    /* Set the expansion states */
+    rms.applyExpansionStates(root, expandedBelow);
+  }
 
-      /* Iterate over the children */
-      for (Object x : obj.getChildren()) {
-        TreeItem<BasicInfo> y = (TreeItem) x;
-        setStateOfHelper(y, item.getChild(lab));
-      }
+  /**
+   * Sets the logging states of all known rules below (and including) a given
+   * rule or import.
+   *
+   * @param expandedBelow
+   *        Collects the rules and imports that have an expanded rule or import
+   *        among their descendants
+   * @return True, if the given rule or import or one of its descendants is
+   * expanded
+   */
+  private boolean applyLoggingStates(BasicInfo bi,
+          Set<BasicInfo> expandedBelow) {
+    if (bi instanceof RuleInfoExtended) {
+      int state = getRule(((RuleInfoExtended) bi).getId());
+      if (state != UNKNOWN) ((RuleInfoExtended) bi).setState(state);
     }
+    boolean below = false;
+    for (BasicInfo child : bi.getChildren())
+      if (applyLoggingStates(child, expandedBelow)) below = true;
+    if (below) expandedBelow.add(bi);
+    return below || Boolean.TRUE.equals(isExpanded(bi));
+  }
+
+  /**
+   * Sets the expansion states of a given TreeItem and its children. Items are
+   * only created if a descendant has to be expanded.
+   */
+  private void applyExpansionStates(TreeItem item,
+          Set<BasicInfo> expandedBelow) {
+    BasicInfo bi = (BasicInfo) item.getValue();
+    Boolean expanded = isExpanded(bi);
+    if (expanded != null) item.setExpanded(expanded);
+    if (item instanceof BasicInfoTreeItem && expandedBelow.contains(bi))
+      ((BasicInfoTreeItem) item).materialize();
+    for (Object child : item.getChildren())
+      applyExpansionStates((TreeItem) child, expandedBelow);
   }
 
 
@@ -226,8 +256,7 @@ public class RuleTreeViewState {
    */
   public static void saveState(Path newFile, TreeView treeView) {
     RuleTreeViewState rtvs = retrieveStateOf(treeView);
-    try {
-      FileWriter writer = new FileWriter(newFile.toFile());
+    try (FileWriter writer = new FileWriter(newFile.toFile())) {
       YAML.dump(rtvs, writer);
     } catch (IOException e) {
       log.error(e.getMessage());
@@ -241,17 +270,132 @@ public class RuleTreeViewState {
    * @param treeView The ruleTreeView
    */
   public static void loadState(Path path, TreeView treeView) {
-    RuleTreeViewState rtvs;
-    try {
-      Yaml yaml = new Yaml();
-      rtvs = (RuleTreeViewState) yaml.load(new FileReader(path.toFile()));
-    } catch (FileNotFoundException e) {
-      log.error("Could not read in configuration file");
+    TreeItem root = treeView.getRoot();
+    if (root == null) return;
+    Object content;
+    LoaderOptions opt = new LoaderOptions();
+    /* tags are not resolved to classes, see PlainConstructor */
+    opt.setTagInspector(tag -> tag.getClassName()
+            .startsWith(RuleTreeViewState.class.getPackageName() + "."));
+    try (FileReader reader = new FileReader(path.toFile())) {
+      content = new Yaml(new PlainConstructor(opt)).load(reader);
+    } catch (IOException | YAMLException e) {
+      log.error("Could not read in configuration file: " + e.getMessage());
       return;
     }
+    if (! (content instanceof Map)) {
+      log.error("Could not read in configuration file: " + path
+              + " does not contain a rule tree state.");
+      return;
+    }
+
+    BasicInfo rootInfo = (BasicInfo) root.getValue();
+    RuleTreeViewState rtvs = new RuleTreeViewState();
+    Map<?, ?> map = (Map<?, ?>) content;
+    if (map.containsKey("root")) {
+      log.info(path + " predates the current rule tree state format, rules "
+              + "are matched by their labels.");
+      Map<?, ?> item = asMap(map.get("root"));
+      if (rootInfo.getLabel().equals(item.get("label")))
+        rtvs.readLegacyItem(rootInfo, item);
+    } else {
+      rtvs.read(map, maxRuleId(rootInfo));
+    }
     setStateOf(rtvs, treeView);
   }
 
+  /**
+   * Constructs every YAML node as plain map, list or scalar, regardless of
+   * its tag.
+   */
+  private static class PlainConstructor extends SafeConstructor {
+
+    PlainConstructor(LoaderOptions options) {
+      super(options);
+      yamlConstructors.put(null, new AbstractConstruct() {
+        @Override
+        public Object construct(Node node) {
+          if (node instanceof MappingNode)
+            return constructMapping((MappingNode) node);
+          if (node instanceof SequenceNode)
+            return constructSequence((SequenceNode) node);
+          return constructScalar((ScalarNode) node);
+        }
+      });
+    }
+  }
+
+  /** @return The given value if it is a map, else an empty map */
+  private static Map<?, ?> asMap(Object value) {
+    return value instanceof Map ? (Map<?, ?>) value : Collections.emptyMap();
+  }
+
+  /** @return The highest rule id below (and including) the given node */
+  private static int maxRuleId(BasicInfo bi) {
+    int max = bi instanceof RuleInfoExtended
+            ? ((RuleInfoExtended) bi).getId() : -1;
+    for (BasicInfo child : bi.getChildren())
+      max = Math.max(max, maxRuleId(child));
+    return max;
+  }
+
+  /**
+   * Takes over a saved state, see the getters for YAML. Rules with ids
+   * outside of the current RuleModel are ignored.
+   *
+   * @param maxRuleId
+   *        The highest rule id of the current RuleModel
+   */
+  private void read(Map<?, ?> map, int maxRuleId) {
+    _rules = new int[maxRuleId + 1];
+    Arrays.fill(_rules, UNKNOWN);
+    int ignored = 0;
+    for (Map.Entry<?, ?> e : asMap(map.get("loggingStates")).entrySet()) {
+      if (isRuleId(e.getKey(), maxRuleId) && e.getValue() instanceof Integer)
+        _rules[(Integer) e.getKey()] = (Integer) e.getValue();
+      else
+        ignored++;
+    }
+    Object expanded = map.get("expandedRules");
+    if (expanded instanceof List) {
+      for (Object id : (List<?>) expanded) {
+        if (isRuleId(id, maxRuleId)) _expandedRules.set((Integer) id);
+        else ignored++;
+      }
+    }
+    for (Map.Entry<?, ?> e : asMap(map.get("imports")).entrySet())
+      if (e.getKey() instanceof String && e.getValue() instanceof Boolean)
+        _imports.put((String) e.getKey(), (Boolean) e.getValue());
+    if (ignored > 0)
+      log.debug("Ignored " + ignored + " saved states of unknown rules.");
+  }
+
+  /** @return True, if the given value is a rule id of the RuleModel */
+  private static boolean isRuleId(Object id, int maxRuleId) {
+    return id instanceof Integer && (Integer) id >= 0
+            && (Integer) id <= maxRuleId;
+  }
+
+  /**
+   * Takes over a state saved in the former nested format, where every item
+   * has a label, properties and its children by label.
+   *
+   * @param bi
+   *        The rule or import the given item has been saved for
+   */
+  private void readLegacyItem(BasicInfo bi, Map<?, ?> item) {
+    Map<?, ?> props = asMap(item.get("props"));
+    Object state = props.get("loggingState");
+    put(bi, Boolean.TRUE.equals(props.get("isExpanded")),
+            state instanceof Integer ? (Integer) state : UNKNOWN);
+    Map<?, ?> children = asMap(item.get("children"));
+    for (BasicInfo child : bi.getChildren()) {
+      Object childItem = children.get(child.getLabel());
+      if (childItem instanceof Map)
+        readLegacyItem(child, (Map<?, ?>) childItem);
+    }
+  }
+
 
   /* ***************************************************************************
    * PRETTY PRINTING
@@ -264,38 +408,40 @@ public class RuleTreeViewState {
    */
   @Override
   public String toString() {
-    if (_root == null) return "RuleTreeViewState is empty";
-
-    String returnVal = "";
-    returnVal += _root.toString() + "\n";
-
-    String prefix = "  ";
-    returnVal += toStringHelper(_root, prefix);
-
-    return returnVal;
-  }
-
-  /** Helper function of <code>toString()</code>. */
-  private String toStringHelper(RuleTreeViewStateItem e, String prefix) {
-    String returnVal = "";
-    for (RuleTreeViewStateItem x : e.getChildrenValues()) {
-      returnVal += prefix + x.toString() + "\n";
-      prefix += "  ";
-      returnVal += toStringHelper(x, prefix);
-      prefix = prefix.substring(0, prefix.length() - 2);
+    if (_imports.isEmpty()) return "RuleTreeViewState is empty";
+
+    StringBuilder sb = new StringBuilder();
+    _imports.forEach((path, expanded) -> sb.append(path)
+            .append(" (IMPORT, expanded: ").append(expanded).append(")\n"));
+    for (int id = 0; id < _rules.length; id++) {
+      if (_rules[id] == UNKNOWN) continue;
+      sb.append(id).append(" (expanded: ").append(_expandedRules.get(id))
+              .append(", logState: ").append(_rules[id]).append(")\n");
     }
-    return returnVal;
+    return sb.toString();
   }
 
 
   /* ***************************************************************************
-   * GETTERS AND SETTERS FOR PRIVATE FIELDS
+   * GETTERS FOR YAML
    * **************************************************************************/
 
-  /** @return The root item of RuleModelState */
-  public RuleTreeViewStateItem getRoot() { return _root; }
+  /** @return The logging states of all known rules, by rule id */
+  public Map<Integer, Integer> getLoggingStates() {
+    Map<Integer, Integer> states = new LinkedHashMap<>();
+    for (int id = 0; id < _rules.length; id++)
+      if (_rules[id] != UNKNOWN) states.put(id, _rules[id]);
+    return states;
+  }
+
+  /** @return The ids of all expanded rules */
+  public List<Integer> getExpandedRules() {
+    List<Integer> ids = new ArrayList<>(_expandedRules.cardinality());
+    _expandedRules.stream().forEach(ids::add);
+    return ids;
+  }
 
-  /** Sets the root item of RuleTreeViewState. (NEEDED FOR YAML) */
-  public void setRoot(RuleTreeViewStateItem root) { _root = root; }
+  /** @return The expansion states of all known imports, sorted by path */
+  public Map<String, Boolean> getImports() { return new TreeMap<>(_imports); }
 
 }
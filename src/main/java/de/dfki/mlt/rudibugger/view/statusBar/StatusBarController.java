@@ -100,6 +100,12 @@ public class StatusBarController {
         compileIndicator.defineContextMenu();
       }
     });
+    project.ruleModelRevisionProperty().addListener((o, ov, nv) -> {
+      if (project.getRuleModel() != null) {
+        compileIndicator.update(project.getRuleModel());
+        compileIndicator.defineContextMenu();
+      }
+    });
   }
 
   private void listenForFileChanges(Project project) {
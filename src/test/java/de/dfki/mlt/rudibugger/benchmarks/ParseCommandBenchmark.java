@@ -0,0 +1,113 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package de.dfki.mlt.rudibugger.benchmarks;
+
+import de.dfki.mlt.rudibugger.project.VondaRuntimeConnection;
+import de.dfki.mlt.rudibugger.rpc.PackedLogCodec;
+import de.dfki.mlt.rudibugger.rpc.PackedLogCodec.FrameWriter;
+import de.dfki.mlt.rudibugger.rpc.RudibuggerAPI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures how fast incoming <code>printLog</code> commands are parsed, as
+ * text and in the packed format. The connection is not started, so the
+ * parsed logs are not formatted.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseCommandBenchmark {
+
+  /** The number of events in a packed frame. */
+  private static final int FRAME = 64;
+
+  /** The number of different commands sent. */
+  private static final int COMMANDS = 1024;
+
+  @Param({"100", "10000", "100000"})
+  public int rules;
+
+  private RudibuggerAPI _api;
+
+  private String[][] _textCommands;
+
+  private String[][] _packedCommands;
+
+  private String[][] _frameCommands;
+
+  private int _next = 0;
+
+  @Setup
+  public void setup() {
+    _api = new RudibuggerAPI(
+            new VondaRuntimeConnection(SyntheticRuleModel.create(rules)));
+    int[] ids = SyntheticRuleModel.createRuleIds(rules, COMMANDS);
+    boolean[][] results = SyntheticRuleModel.createResults(COMMANDS);
+    FrameWriter writer = new FrameWriter();
+
+    _textCommands = new String[COMMANDS][];
+    _packedCommands = new String[COMMANDS][];
+    _frameCommands = new String[COMMANDS][];
+    for (int i = 0; i < COMMANDS; i++) {
+      String[] text = new String[results[i].length + 2];
+      text[0] = "printLog";
+      text[1] = Integer.toString(ids[i]);
+      for (int j = 0; j < results[i].length; j++)
+        text[j + 2] = Boolean.toString(results[i][j]);
+      _textCommands[i] = text;
+
+      writer.add(ids[i], results[i]);
+      _packedCommands[i] = new String[] {
+        PackedLogCodec.PRINT_LOG_PACKED, writer.finish() };
+
+      for (int j = 0; j < FRAME; j++)
+        writer.add(ids[(i + j) % COMMANDS], results[(i + j) % COMMANDS]);
+      _frameCommands[i] = new String[] {
+        PackedLogCodec.PRINT_LOG_PACKED, writer.finish() };
+    }
+  }
+
+  private int next() {
+    _next = (_next + 1) & (COMMANDS - 1);
+    return _next;
+  }
+
+  @Benchmark
+  public void text() {
+    _api.parseCommand(_textCommands[next()]);
+  }
+
+  @Benchmark
+  public void packed() {
+    _api.parseCommand(_packedCommands[next()]);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(FRAME)
+  public void packedFrame() {
+    _api.parseCommand(_frameCommands[next()]);
+  }
+
+}
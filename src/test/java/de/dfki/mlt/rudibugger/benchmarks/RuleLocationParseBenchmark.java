@@ -0,0 +1,88 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+
+package de.dfki.mlt.rudibugger.benchmarks;
+
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleLocationParser;
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
+import de.dfki.mlt.rudimant.common.IncludeInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the two ways of building a <code>RuleModel</code> from a large
+ * generated <code>RuleLoc.yml</code>: letting VOnDA parse the file and
+ * copying its objects (two passes), and streaming the file into the
+ * extended nodes directly. Run with <code>-prof gc</code> to compare the
+ * allocation.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleLocationParseBenchmark {
+
+  @Param({"10000", "100000"})
+  public int rules;
+
+  private Path _ruleLocYaml;
+
+  @Setup
+  public void setup() throws IOException {
+    _ruleLocYaml = Files.createTempFile("RuleLoc", ".yml");
+    SyntheticRuleModel.writeRuleLocYaml(rules, _ruleLocYaml);
+    try (Reader reader = Files.newBufferedReader(_ruleLocYaml)) {
+      if (RuleLocationParser.parse(reader, SyntheticRuleModel.getRudiFolder())
+              == null)
+        throw new IllegalStateException("Generated file can not be streamed");
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(_ruleLocYaml);
+  }
+
+  @Benchmark
+  public RuleModel twoPass() throws IOException {
+    IncludeInfo ii;
+    try (InputStream in = Files.newInputStream(_ruleLocYaml)) {
+      ii = IncludeInfo.loadInfo(in);
+    }
+    return RuleModel.createRuleModel(SyntheticRuleModel.getRudiFolder(),
+            _ruleLocYaml, ii);
+  }
+
+  @Benchmark
+  public RuleModel streaming() {
+    return RuleModel.createRuleModel(SyntheticRuleModel.getRudiFolder(),
+            _ruleLocYaml);
+  }
+
+}
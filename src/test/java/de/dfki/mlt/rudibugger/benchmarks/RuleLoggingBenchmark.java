@@ -0,0 +1,114 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package de.dfki.mlt.rudibugger.benchmarks;
+
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
+import de.dfki.mlt.rudibugger.rpc.JavaFXLogger;
+import de.dfki.mlt.rudibugger.rpc.LogData;
+import de.dfki.mlt.rudibugger.rpc.LogTemplate;
+import de.dfki.mlt.rudimant.common.RuleLogger;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures how fast received logs are turned into <code>LogData</code>
+ * objects: with VOnDA's <code>RuleLogger</code> and the
+ * <code>JavaFXLogger</code>, with the result patterns cached in the rules'
+ * templates, and the construction of <code>LogData</code> alone.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleLoggingBenchmark {
+
+  /** The number of different logs. */
+  private static final int LOGS = 1024;
+
+  /** The number of different result patterns. */
+  private static final int PATTERNS = 16;
+
+  @Param({"100", "10000", "100000"})
+  public int rules;
+
+  private RuleModel _ruleModel;
+
+  private RuleLogger _ruleLogger;
+
+  private JavaFXLogger _javaFXLogger;
+
+  private int[] _ids;
+
+  private boolean[][] _results;
+
+  private int _next = 0;
+
+  @Setup
+  public void setup() {
+    _ruleModel = SyntheticRuleModel.create(rules);
+    _ruleLogger = new RuleLogger();
+    _ruleLogger.setRootInfo(_ruleModel.getRootImport());
+    _javaFXLogger = new JavaFXLogger();
+    _ruleLogger.registerPrinter(_javaFXLogger);
+    _ruleLogger.logAllRules();
+    _ids = SyntheticRuleModel.createRuleIds(rules, LOGS);
+    _results = SyntheticRuleModel.createResults(PATTERNS);
+
+    /* fill the templates' pattern caches */
+    for (int i = 0; i < LOGS; i++) {
+      for (boolean[] result : _results) {
+        LogTemplate template = _ruleModel.getLogTemplate(_ids[i]);
+        if (template.createLogData(result) == null)
+          template.rememberPattern(result, logRule(_ids[i], result));
+      }
+    }
+  }
+
+  private LogData logRule(int ruleId, boolean[] result) {
+    _ruleLogger.logRule(ruleId, result);
+    return _javaFXLogger.popContent(_ruleModel.getLogTemplate(ruleId));
+  }
+
+  @Benchmark
+  public LogData ruleLogger() {
+    _next = (_next + 1) & (LOGS - 1);
+    return logRule(_ids[_next], _results[_next & (PATTERNS - 1)]);
+  }
+
+  @Benchmark
+  public LogData cachedTemplate() {
+    _next = (_next + 1) & (LOGS - 1);
+    return _ruleModel.getLogTemplate(_ids[_next])
+            .createLogData(_results[_next & (PATTERNS - 1)]);
+  }
+
+  @Benchmark
+  public LogData logData() {
+    _next = (_next + 1) & (LOGS - 1);
+    LogTemplate template = _ruleModel.getLogTemplate(_ids[_next]);
+    return new LogData(template, new int[] { 0, 1, 2, 3 },
+            new byte[] { LogData.GREEN, LogData.RED, LogData.GRAY,
+              LogData.BLACK });
+  }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package de.dfki.mlt.rudibugger.benchmarks;
+
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
+import de.dfki.mlt.rudimant.common.IncludeInfo;
+import de.dfki.mlt.rudimant.common.RuleInfo;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Creates synthetic rule models with the same structure as a compiled
+ * <code>RuleLoc.yml</code>: a root import containing imports of
+ * {@value #RULES_PER_IMPORT} rules each. Every rule has
+ * {@value #BASE_TERMS} base terms.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public final class SyntheticRuleModel {
+
+  /** The number of rules per import. */
+  public static final int RULES_PER_IMPORT = 100;
+
+  /** The number of base terms of every rule. */
+  public static final int BASE_TERMS = 3;
+
+  /** The .rudi folder of the synthetic project. */
+  private static final Path RUDI_FOLDER = Paths.get("src", "main", "rudi");
+
+  /** The prefix of the YAML tags used by VOnDA. */
+  private static final String TAG = "!!de.dfki.mlt.rudimant.common.";
+
+  /** Does not need to be instantiated. */
+  private SyntheticRuleModel() {}
+
+  /** An import as found in RuleLoc.yml. */
+  private static class SyntheticImport extends IncludeInfo {
+
+    private final String _name;
+
+    SyntheticImport(String name) {
+      _name = name;
+      _errors = new ArrayList<>();
+    }
+
+    @Override
+    public String getLabel() { return _name; }
+
+    @Override
+    public String getFilePath() { return _name + ".rudi"; }
+  }
+
+  /** A rule as found in RuleLoc.yml. */
+  private static class SyntheticRule extends RuleInfo {
+
+    private final int _ruleId;
+
+    SyntheticRule(int id) { _ruleId = id; }
+
+    @Override
+    public int getId() { return _ruleId; }
+
+    @Override
+    public String getLabel() { return "rule" + _ruleId; }
+
+    @Override
+    public int getLine() { return 1 + 5 * (_ruleId % RULES_PER_IMPORT); }
+
+    @Override
+    public String getExpression() {
+      return "a" + _ruleId + " && (b" + _ruleId + " || ! c" + _ruleId + ")";
+    }
+
+    @Override
+    public String[] getBaseterms() {
+      return new String[] { "a" + _ruleId, "b" + _ruleId, "! c" + _ruleId };
+    }
+  }
+
+  /**
+   * Creates a synthetic rule model.
+   *
+   * @param rules
+   *        The number of rules, ids range from 0 to rules - 1
+   * @return The new <code>RuleModel</code>
+   */
+  public static RuleModel create(int rules) {
+    SyntheticImport root = new SyntheticImport("Main");
+    SyntheticImport current = null;
+    for (int id = 0; id < rules; id++) {
+      if (id % RULES_PER_IMPORT == 0) {
+        current = new SyntheticImport("Module" + id / RULES_PER_IMPORT);
+        root.getChildren().add(current);
+      }
+      current.getChildren().add(new SyntheticRule(id));
+    }
+    return RuleModel.createRuleModel(RUDI_FOLDER,
+            RUDI_FOLDER.resolve("RuleLoc.yml"), root);
+  }
+
+  /**
+   * Writes a synthetic <code>RuleLoc.yml</code> with the same structure as
+   * <code>create</code>, in the format written by VOnDA.
+   *
+   * @param rules
+   *        The number of rules, ids range from 0 to rules - 1
+   * @param file
+   *        The file to write
+   * @throws IOException
+   *        If the file could not be written
+   */
+  public static void writeRuleLocYaml(int rules, Path file)
+          throws IOException {
+    try (BufferedWriter out = Files.newBufferedWriter(file)) {
+      out.write(TAG + "IncludeInfo\nchildren:\n");
+      for (int id = 0; id < rules; id++) {
+        if (id % RULES_PER_IMPORT == 0)
+          out.write("- " + TAG + "IncludeInfo\n  children:\n");
+        out.write("  - " + TAG + "RuleInfo\n"
+            + "    baseterms: ['a" + id + "', 'b" + id + "', '! c" + id
+                + "']\n"
+            + "    children: []\n"
+            + "    expression: 'a" + id + " && (b" + id + " || ! c" + id
+                + ")'\n"
+            + "    id: " + id + "\n"
+            + "    label: rule" + id + "\n"
+            + "    line: " + (1 + 5 * (id % RULES_PER_IMPORT)) + "\n");
+        if (id % RULES_PER_IMPORT == RULES_PER_IMPORT - 1 || id == rules - 1) {
+          int module = id / RULES_PER_IMPORT;
+          out.write("  errors: []\n  filePath: Module" + module + ".rudi\n"
+              + "  label: Module" + module + "\n  line: 0\n");
+        }
+      }
+      out.write("errors: []\nfilePath: Main.rudi\nlabel: Main\nline: 0\n");
+    }
+  }
+
+  /** @return The .rudi folder of the synthetic project */
+  public static Path getRudiFolder() { return RUDI_FOLDER; }
+
+  /**
+   * Creates random evaluation results as sent by VOnDA: the overall result
+   * followed by one result per base term.
+   *
+   * @param patterns
+   *        The number of results to create
+   * @return The results
+   */
+  public static boolean[][] createResults(int patterns) {
+    Random random = new Random(42);
+    boolean[][] results = new boolean[patterns][BASE_TERMS + 1];
+    for (boolean[] result : results)
+      for (int i = 0; i < result.length; i++) result[i] = random.nextBoolean();
+    return results;
+  }
+
+  /**
+   * Creates a random sequence of rule ids.
+   *
+   * @param rules
+   *        The number of rules
+   * @param length
+   *        The length of the sequence
+   * @return The rule ids
+   */
+  public static int[] createRuleIds(int rules, int length) {
+    Random random = new Random(4711);
+    int[] ids = new int[length];
+    for (int i = 0; i < length; i++) ids[i] = random.nextInt(rules);
+    return ids;
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package de.dfki.mlt.rudibugger.benchmarks;
+
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
+import de.dfki.mlt.rudibugger.rpc.LogData;
+import de.dfki.mlt.rudibugger.view.ruleLoggingTableView.RingBufferObservableList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javafx.collections.transformation.SortedList;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the insertion of log batches into the list backing the
+ * ruleLoggingTableView, as done on every pulse of the log ingestion. No stage
+ * is shown. As in the table, a <code>SortedList</code> is only used if the
+ * entries are sorted by something else than the default order (newest first):
+ * <code>time</code> sorts oldest first, <code>label</code> by the rules'
+ * labels.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableInsertBenchmark {
+
+  /** The number of entries inserted per batch. */
+  private static final int BATCH = 64;
+
+  @Param({"100", "10000", "100000"})
+  public int rules;
+
+  @Param({"none", "time", "label"})
+  public String sortColumn;
+
+  private RingBufferObservableList<LogData> _list;
+
+  private SortedList<LogData> _sortedList;
+
+  private List<List<LogData>> _batches;
+
+  private int _next = 0;
+
+  @Setup
+  public void setup() {
+    RuleModel ruleModel = SyntheticRuleModel.create(rules);
+    int[] ids = SyntheticRuleModel.createRuleIds(rules, 16 * BATCH);
+    _batches = new ArrayList<>();
+    for (int b = 0; b < 16; b++) {
+      List<LogData> batch = new ArrayList<>(BATCH);
+      for (int i = BATCH - 1; i >= 0; --i) {
+        batch.add(new LogData(ruleModel.getLogTemplate(ids[b * BATCH + i]),
+                new int[] { 0, 1 }, new byte[] { LogData.GREEN,
+                  LogData.RED }));
+      }
+      _batches.add(batch);
+    }
+
+    _list = new RingBufferObservableList<>(100000);
+    switch (sortColumn) {
+      case "time":
+        _sortedList = new SortedList<>(_list,
+                Comparator.comparingLong(LogData::getSequence));
+        break;
+      case "label":
+        _sortedList = new SortedList<>(_list,
+                Comparator.comparing(d -> d.getLabel().content));
+        break;
+      default:
+        _sortedList = null;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public int insertBatch() {
+    _next = (_next + 1) & 15;
+    _list.addAll(0, _batches.get(_next));
+    return _sortedList == null ? _list.size() : _sortedList.size();
+  }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.project.ruleModel;
+
+import de.dfki.mlt.rudibugger.benchmarks.SyntheticRuleModel;
+import de.dfki.mlt.rudimant.common.BasicInfo;
+import de.dfki.mlt.rudimant.common.IncludeInfo;
+import de.dfki.mlt.rudimant.common.RuleInfo;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the snapshot of <code>RuleLoc.yml</code> restores the parsed
+ * rule structure and is only used while the YAML file is unchanged.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class RuleLocationCacheTest {
+
+  private static final Path RUDI_FOLDER = SyntheticRuleModel.getRudiFolder();
+
+  private Path _folder;
+
+  private Path _ruleLocYaml;
+
+  private Path _cacheFile;
+
+  @Before
+  public void setUp() throws IOException {
+    _folder = Files.createTempDirectory("ruleLocCache");
+    _ruleLocYaml = _folder.resolve("RuleLoc.yml");
+    _cacheFile = _folder.resolve("cache").resolve("RuleLoc.cache");
+    SyntheticRuleModel.writeRuleLocYaml(250, _ruleLocYaml);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(_folder)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  /** @return The structure parsed from the YAML file */
+  private IncludeInfo parse() throws IOException {
+    try (Reader reader = Files.newBufferedReader(_ruleLocYaml)) {
+      return RuleLocationParser.parse(reader, RUDI_FOLDER);
+    }
+  }
+
+  /** Parses the YAML file and stores its snapshot, as the RuleModel does. */
+  private IncludeInfo parseAndStore() throws IOException {
+    RuleLocationCache cache = new RuleLocationCache(_ruleLocYaml, _cacheFile);
+    assertNull(cache.load());
+    IncludeInfo parsed = parse();
+    cache.store(parsed);
+    assertTrue(Files.exists(_cacheFile));
+    return parsed;
+  }
+
+  /** @return The structure restored from the snapshot, or null */
+  private IncludeInfo load() {
+    return new RuleLocationCache(_ruleLocYaml, _cacheFile).load();
+  }
+
+  /** Compares two nodes and their children recursively. */
+  private static void assertSameTree(BasicInfo expected, BasicInfo actual) {
+    assertEquals(expected instanceof IncludeInfo,
+            actual instanceof IncludeInfo);
+    assertEquals(expected.getLabel(), actual.getLabel());
+    assertEquals(expected.getLine(), actual.getLine());
+    if (expected instanceof RuleInfo) {
+      RuleInfo e = (RuleInfo) expected;
+      RuleInfo a = (RuleInfo) actual;
+      assertEquals(e.getId(), a.getId());
+      assertEquals(e.getExpression(), a.getExpression());
+      assertArrayEquals(e.getBaseterms(), a.getBaseterms());
+    } else {
+      assertEquals(((IncludeInfo) expected).getFilePath(),
+              ((IncludeInfo) actual).getFilePath());
+      assertNotNull(((IncludeInfo) actual).getErrors());
+      assertTrue(((IncludeInfo) actual).getErrors().isEmpty());
+    }
+    assertEquals(expected.getChildren().size(), actual.getChildren().size());
+    for (int i = 0; i < expected.getChildren().size(); i++) {
+      assertSame(actual, actual.getChildren().get(i).getParent());
+      assertSameTree(expected.getChildren().get(i),
+              actual.getChildren().get(i));
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    IncludeInfo parsed = parseAndStore();
+    IncludeInfo cached = load();
+    assertNotNull(cached);
+    assertSameTree(parsed, cached);
+
+    /* the restored structure can be turned into a RuleModel */
+    RuleModel rm = RuleModel.createRuleModel(RUDI_FOLDER, _ruleLocYaml,
+            cached);
+    assertSameTree(parsed, rm.getRootImport());
+  }
+
+  @Test
+  public void testModelFromCache() throws IOException {
+    parseAndStore();
+    RuleModel rm = RuleModel.createRuleModel(RUDI_FOLDER, _ruleLocYaml,
+            new RuleLocationCache(_ruleLocYaml, _cacheFile));
+    assertNotNull(rm);
+    assertSameTree(parse(), rm.getRootImport());
+  }
+
+  @Test
+  public void testChangedModificationTime() throws IOException {
+    parseAndStore();
+    Files.setLastModifiedTime(_ruleLocYaml, FileTime.fromMillis(
+            Files.getLastModifiedTime(_ruleLocYaml).toMillis() + 2000));
+    assertNull(load());
+  }
+
+  @Test
+  public void testChangedContent() throws IOException {
+    parseAndStore();
+    FileTime modified = Files.getLastModifiedTime(_ruleLocYaml);
+    /* same size and modification time, different content */
+    try (RandomAccessFile file = new RandomAccessFile(_ruleLocYaml.toFile(),
+            "rw")) {
+      file.seek(file.length() - 2);
+      file.write('1');
+    }
+    Files.setLastModifiedTime(_ruleLocYaml, modified);
+    assertNull(load());
+  }
+
+  @Test
+  public void testCorruptedHash() throws IOException {
+    parseAndStore();
+    try (RandomAccessFile file = new RandomAccessFile(_cacheFile.toFile(),
+            "rw")) {
+      /* the CRC32 follows magic, version, size and modification time */
+      file.seek(24);
+      long hash = file.readLong();
+      file.seek(24);
+      file.writeLong(~hash);
+    }
+    assertNull(load());
+  }
+
+  @Test
+  public void testTruncatedSnapshot() throws IOException {
+    parseAndStore();
+    try (RandomAccessFile file = new RandomAccessFile(_cacheFile.toFile(),
+            "rw")) {
+      file.setLength(file.length() / 2);
+    }
+    assertNull(load());
+
+    /* the RuleModel falls back to parsing the YAML */
+    RuleModel rm = RuleModel.createRuleModel(RUDI_FOLDER, _ruleLocYaml,
+            new RuleLocationCache(_ruleLocYaml, _cacheFile));
+    assertNotNull(rm);
+    assertSameTree(parse(), rm.getRootImport());
+  }
+}
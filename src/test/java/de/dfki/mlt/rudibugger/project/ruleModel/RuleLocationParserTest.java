@@ -0,0 +1,151 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.project.ruleModel;
+
+import de.dfki.mlt.rudibugger.benchmarks.SyntheticRuleModel;
+import de.dfki.mlt.rudimant.common.BasicInfo;
+import de.dfki.mlt.rudimant.common.IncludeInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the rule structure streamed by <code>RuleLocationParser</code>
+ * with the one loaded by VOnDA, and checks that unexpected content makes the
+ * parser give up.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class RuleLocationParserTest {
+
+  private static final String TAG = "!!de.dfki.mlt.rudimant.common.";
+
+  private static final Path RUDI_FOLDER = SyntheticRuleModel.getRudiFolder();
+
+  private Path _ruleLocYaml;
+
+  @Before
+  public void setUp() throws IOException {
+    _ruleLocYaml = Files.createTempFile("RuleLoc", ".yml");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(_ruleLocYaml);
+  }
+
+  private static ImportInfoExtended parse(String yaml) {
+    return RuleLocationParser.parse(new StringReader(yaml), RUDI_FOLDER);
+  }
+
+  private static String rule(String extra) {
+    return TAG + "IncludeInfo\nchildren:\n"
+        + "- " + TAG + "RuleInfo\n"
+        + "  baseterms: [a]\n  children: []\n  expression: a\n"
+        + extra
+        + "  label: r\n  line: 3\n"
+        + "errors: []\nfilePath: Main.rudi\nlabel: Main\nline: 0\n";
+  }
+
+  /** Compares two nodes and their children recursively. */
+  private static void assertSameTree(BasicInfo expected, BasicInfo actual) {
+    assertEquals(expected.getClass(), actual.getClass());
+    assertEquals(expected.getLabel(), actual.getLabel());
+    assertEquals(expected.getLine(), actual.getLine());
+    if (expected instanceof RuleInfoExtended) {
+      RuleInfoExtended e = (RuleInfoExtended) expected;
+      RuleInfoExtended a = (RuleInfoExtended) actual;
+      assertEquals(e.getId(), a.getId());
+      assertEquals(e.getExpression(), a.getExpression());
+      assertArrayEquals(e.getBaseterms(), a.getBaseterms());
+    } else {
+      ImportInfoExtended e = (ImportInfoExtended) expected;
+      ImportInfoExtended a = (ImportInfoExtended) actual;
+      assertEquals(e.getFilePath(), a.getFilePath());
+      assertEquals(e.getAbsolutePath(), a.getAbsolutePath());
+      assertEquals(e.getErrors(), a.getErrors());
+    }
+    assertEquals(expected.getChildren().size(), actual.getChildren().size());
+    for (int i = 0; i < expected.getChildren().size(); i++)
+      assertSameTree(expected.getChildren().get(i),
+              actual.getChildren().get(i));
+  }
+
+  @Test
+  public void testSameAsVonda() throws IOException {
+    SyntheticRuleModel.writeRuleLocYaml(250, _ruleLocYaml);
+    IncludeInfo loaded;
+    try (InputStream in = Files.newInputStream(_ruleLocYaml)) {
+      loaded = IncludeInfo.loadInfo(in);
+    }
+    RuleModel reference = RuleModel.createRuleModel(RUDI_FOLDER,
+            _ruleLocYaml, loaded);
+
+    ImportInfoExtended streamed;
+    try (Reader reader = Files.newBufferedReader(_ruleLocYaml)) {
+      streamed = RuleLocationParser.parse(reader, RUDI_FOLDER);
+    }
+    assertNotNull(streamed);
+    assertSameTree(reference.getRootImport(),
+            RuleModel.createRuleModel(RUDI_FOLDER, _ruleLocYaml, streamed)
+                    .getRootImport());
+  }
+
+  @Test
+  public void testRule() {
+    ImportInfoExtended root = parse(rule("  id: 7\n"));
+    assertNotNull(root);
+    RuleInfoExtended rule = (RuleInfoExtended) root.getChildren().get(0);
+    assertEquals(7, rule.getId());
+    assertEquals("r", rule.getLabel());
+    assertEquals(3, rule.getLine());
+    assertEquals("a", rule.getExpression());
+    assertSame(root, rule.getParent());
+  }
+
+  @Test
+  public void testUnknownKey() {
+    assertNull(parse(rule("  id: 7\n  priority: 1\n")));
+  }
+
+  @Test
+  public void testMissingId() {
+    assertNull(parse(rule("")));
+  }
+
+  @Test
+  public void testNullId() {
+    assertNull(parse(rule("  id: ~\n")));
+  }
+
+  @Test
+  public void testErrors() {
+    assertNull(parse(TAG + "IncludeInfo\nchildren: []\n"
+        + "errors:\n- {message: m}\nfilePath: Main.rudi\nlabel: Main\n"
+        + "line: 0\n"));
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.project.watchServices;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the scan finds all folders and <code>.rudi</code> files, every
+ * folder before its content, and skips hidden files and folders.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class RudiFolderScannerTest {
+
+  private Path _folder;
+
+  @Before
+  public void setUp() throws IOException {
+    _folder = Files.createTempDirectory("rudiFolderScanner");
+    create("Main.rudi");
+    create("notes.txt");
+    create(".Hidden.rudi");
+    create("a/A.rudi");
+    create("a/deep/Deep.rudi");
+    create("b/B.rudi");
+    create("b/empty/");
+    create(".git/Ignored.rudi");
+    create("a/.backup/Ignored.rudi");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(_folder)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  /** Creates a file, or a folder if the name ends with a slash. */
+  private void create(String name) throws IOException {
+    Path path = _folder.resolve(name);
+    if (name.endsWith("/")) {
+      Files.createDirectories(path);
+    } else {
+      Files.createDirectories(path.getParent());
+      Files.writeString(path, name);
+    }
+  }
+
+  /** @return The given entries' paths relative to the test folder */
+  private Set<String> relative(List<RudiFolderScanner.Entry> entries) {
+    return entries.stream()
+        .map(e -> _folder.relativize(e.path).toString().replace('\\', '/'))
+        .collect(Collectors.toSet());
+  }
+
+  @Test
+  public void testFindsFoldersAndRudiFiles() {
+    List<RudiFolderScanner.Entry> entries
+            = RudiFolderScanner.scan(_folder, null);
+    Set<String> expected = new HashSet<>(List.of("", "Main.rudi", "a",
+            "a/A.rudi", "a/deep", "a/deep/Deep.rudi", "b", "b/B.rudi",
+            "b/empty"));
+    assertEquals(expected, relative(entries));
+    assertEquals(expected.size(), entries.size());
+  }
+
+  @Test
+  public void testEntries() throws IOException {
+    for (RudiFolderScanner.Entry e : RudiFolderScanner.scan(_folder, null)) {
+      assertEquals(Files.isDirectory(e.path), e.folder);
+      assertEquals(Files.getLastModifiedTime(e.path).toMillis(),
+              e.lastModified);
+      if (! e.folder) assertEquals(Files.size(e.path), e.size);
+    }
+  }
+
+  @Test
+  public void testFoldersBeforeContent() {
+    List<RudiFolderScanner.Entry> entries
+            = RudiFolderScanner.scan(_folder, null);
+    List<Path> seen = new ArrayList<>();
+    for (RudiFolderScanner.Entry e : entries) {
+      assertTrue(e.path + " before its folder",
+              seen.contains(e.path.getParent()) || e.path.equals(_folder));
+      seen.add(e.path);
+    }
+  }
+
+  @Test
+  public void testFolderListener() {
+    List<Path> folders = Collections.synchronizedList(new ArrayList<>());
+    List<RudiFolderScanner.Entry> entries
+            = RudiFolderScanner.scan(_folder, folders::add);
+    Set<Path> expected = entries.stream().filter(e -> e.folder)
+        .map(e -> e.path).collect(Collectors.toSet());
+    assertEquals(expected, new HashSet<>(folders));
+    assertEquals(expected.size(), folders.size());
+  }
+
+  @Test
+  public void testIsHidden() {
+    assertTrue(RudiFolderScanner.isHidden(_folder.resolve(".git")));
+    assertTrue(RudiFolderScanner.isHidden(_folder.resolve(".Hidden.rudi")));
+    assertFalse(RudiFolderScanner.isHidden(_folder.resolve("Main.rudi")));
+  }
+
+  @Test
+  public void testMissingFolder() {
+    assertTrue(RudiFolderScanner.scan(_folder.resolve("missing"), null)
+            .isEmpty());
+  }
+
+}
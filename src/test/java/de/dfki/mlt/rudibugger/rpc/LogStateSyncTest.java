@@ -0,0 +1,186 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.rpc;
+
+import static de.dfki.mlt.rudimant.common.Constants.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the encoding of logging state runs and the update sequence sent to
+ * VOnDA.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class LogStateSyncTest {
+
+  /** Records the sent updates as "version base runs...". */
+  private final List<String> _sent = new ArrayList<>();
+
+  private final LogStateSync.UpdateSender _sender = (version, base, runs)
+          -> _sent.add(version + " " + base + " " + String.join(" ", runs));
+
+  private static Map<Integer, Integer> states(int... idsAndStates) {
+    Map<Integer, Integer> states = new HashMap<>();
+    for (int i = 0; i < idsAndStates.length; i += 2)
+      states.put(idsAndStates[i], idsAndStates[i + 1]);
+    return states;
+  }
+
+  @Test
+  public void testEncode() {
+    TreeMap<Integer, Integer> states = new TreeMap<>(states(
+            1, STATE_NEVER, 2, STATE_NEVER, 3, STATE_NEVER,
+            5, STATE_NEVER, 6, STATE_IF_TRUE, 7, STATE_IF_TRUE));
+    assertEquals(Arrays.asList(STATE_NEVER + ":1-3", STATE_NEVER + ":5",
+            STATE_IF_TRUE + ":6-7"), LogStateSync.encode(states));
+    assertTrue(LogStateSync.encode(new TreeMap<>()).isEmpty());
+  }
+
+  @Test
+  public void testDecodeReversesEncode() {
+    TreeMap<Integer, Integer> states = new TreeMap<>(states(
+            0, STATE_NEVER, 1, STATE_NEVER, 4, STATE_IF_FALSE,
+            9, STATE_ALWAYS, 10, STATE_ALWAYS, 11, STATE_NEVER));
+    TreeMap<Integer, Integer> decoded = new TreeMap<>();
+    for (String run : LogStateSync.encode(states))
+      LogStateSync.decode(run, decoded::put);
+    assertEquals(states, decoded);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeMissingState() {
+    LogStateSync.decode("12-14", (id, state) -> {});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeIllegalNumber() {
+    LogStateSync.decode("1:a-3", (id, state) -> {});
+  }
+
+  @Test
+  public void testSyncAndUpdate() {
+    LogStateSync sync = new LogStateSync();
+
+    /* the first sync only sends the non-default states */
+    sync.sync(_sender, states(1, STATE_ALWAYS, 2, STATE_NEVER,
+            3, STATE_NEVER));
+    assertEquals("1 0 " + STATE_NEVER + ":2-3", _sent.get(0));
+
+    /* changes are collected until the update is acknowledged */
+    sync.update(_sender, states(3, STATE_ALWAYS));
+    sync.update(_sender, states(1, STATE_IF_TRUE));
+    assertEquals(1, _sent.size());
+    sync.acknowledged(_sender, 1);
+    assertEquals("2 1 " + STATE_IF_TRUE + ":1 " + STATE_ALWAYS + ":3",
+            _sent.get(1));
+    sync.acknowledged(_sender, 2);
+
+    /* unchanged states are not sent at all */
+    sync.update(_sender, states(1, STATE_IF_TRUE, 2, STATE_NEVER));
+    assertEquals(2, _sent.size());
+
+    /* rules no longer present are reset by the next sync */
+    sync.sync(_sender, states(1, STATE_IF_TRUE));
+    assertEquals("3 2 " + STATE_ALWAYS + ":2", _sent.get(2));
+  }
+
+  @Test
+  public void testRejected() {
+    LogStateSync sync = new LogStateSync();
+    sync.sync(_sender, states(1, STATE_NEVER));
+    sync.acknowledged(_sender, 1);
+    sync.update(_sender, states(2, STATE_IF_FALSE));
+    assertEquals("2 1 " + STATE_IF_FALSE + ":2", _sent.get(1));
+
+    /* answers to other versions are ignored */
+    sync.rejected(_sender, 1);
+    assertEquals(2, _sent.size());
+
+    /* a rejection causes a full resend */
+    sync.rejected(_sender, 2);
+    assertEquals("3 0 " + STATE_NEVER + ":1 " + STATE_IF_FALSE + ":2",
+            _sent.get(2));
+  }
+
+  @Test
+  public void testReconnect() {
+    LogStateSync sync = new LogStateSync();
+    sync.sync(_sender, states(1, STATE_NEVER, 2, STATE_NEVER));
+    sync.acknowledged(_sender, 1);
+    sync.update(_sender, states(3, STATE_NEVER));
+
+    /* the unanswered update is replaced by a diff against the acknowledged
+       states, which only contains the rules changed since then */
+    sync.reconnected();
+    sync.sync(_sender, states(1, STATE_NEVER, 2, STATE_ALWAYS,
+            3, STATE_NEVER));
+    assertEquals("3 1 " + STATE_ALWAYS + ":2 " + STATE_NEVER + ":3",
+            _sent.get(2));
+
+    /* the answer to the lost update does not count any more */
+    sync.acknowledged(_sender, 2);
+    sync.acknowledged(_sender, 3);
+    sync.reconnected();
+    sync.sync(_sender, states(1, STATE_NEVER, 3, STATE_NEVER));
+    assertEquals(3, _sent.size());
+  }
+
+  @Test
+  public void testEmptyFullSync() {
+    LogStateSync sync = new LogStateSync();
+
+    /* VOnDA may still have states of an earlier session */
+    sync.sync(_sender, states(1, STATE_ALWAYS));
+    assertEquals("1 0 ", _sent.get(0));
+  }
+
+  @Test
+  public void testRuleByRule() {
+    LogStateSync sync = new LogStateSync();
+    List<String> sent = new ArrayList<>();
+    LogStateSync.RuleStateSender sender
+            = (id, state) -> sent.add(id + ":" + state);
+
+    /* only the non-default states are sent */
+    sync.syncEach(sender, states(1, STATE_ALWAYS, 2, STATE_NEVER,
+            3, STATE_IF_TRUE));
+    assertEquals(Arrays.asList("2:" + STATE_NEVER, "3:" + STATE_IF_TRUE),
+            sent);
+
+    sent.clear();
+    sync.updateEach(sender, states(2, STATE_NEVER, 3, STATE_ALWAYS));
+    assertEquals(Arrays.asList("3:" + STATE_ALWAYS), sent);
+
+    /* rules sent another state before are reset */
+    sent.clear();
+    sync.updateEach(sender, states(1, STATE_IF_FALSE));
+    sync.syncEach(sender, states(2, STATE_NEVER));
+    assertEquals(Arrays.asList("1:" + STATE_IF_FALSE,
+            "1:" + STATE_ALWAYS, "2:" + STATE_NEVER), sent);
+  }
+}
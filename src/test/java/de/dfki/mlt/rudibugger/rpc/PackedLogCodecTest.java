@@ -0,0 +1,122 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.rpc;
+
+import de.dfki.mlt.rudibugger.rpc.PackedLogCodec.FrameWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the encoding and decoding of packed log frames.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class PackedLogCodecTest {
+
+  private final List<Integer> _ruleIds = new ArrayList<>();
+
+  private final List<boolean[]> _results = new ArrayList<>();
+
+  private int decode(String frame) {
+    return PackedLogCodec.decode(frame, (ruleId, result) -> {
+      _ruleIds.add(ruleId);
+      _results.add(result);
+    });
+  }
+
+  private static String frame(int... bytes) {
+    byte[] data = new byte[bytes.length];
+    for (int i = 0; i < bytes.length; i++) data[i] = (byte) bytes[i];
+    return Base64.getEncoder().withoutPadding().encodeToString(data);
+  }
+
+  private static boolean[] pattern(int length, int seed) {
+    boolean[] result = new boolean[length];
+    for (int i = 0; i < length; i++) result[i] = (i * 7 + seed) % 3 == 0;
+    return result;
+  }
+
+  @Test
+  public void testRoundTrip() {
+    int[] ids = { 0, 1, 127, 128, 16384, Integer.MAX_VALUE };
+    int[] lengths = { 0, 1, 7, 8, 9, 100 };
+    FrameWriter writer = new FrameWriter();
+    for (int i = 0; i < ids.length; i++)
+      writer.add(ids[i], pattern(lengths[i], i));
+    assertEquals(ids.length, writer.getEvents());
+
+    assertEquals(ids.length, decode(writer.finish()));
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals(ids[i], (int) _ruleIds.get(i));
+      assertArrayEquals(pattern(lengths[i], i), _results.get(i));
+    }
+    assertEquals(0, writer.getEvents());
+    assertEquals(0, writer.getLength());
+  }
+
+  @Test
+  public void testEmptyFrame() {
+    assertEquals(0, decode(new FrameWriter().finish()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTruncatedResults() {
+    FrameWriter writer = new FrameWriter();
+    writer.add(5, pattern(20, 0));
+    byte[] data = Base64.getDecoder().decode(writer.finish());
+    decode(Base64.getEncoder().encodeToString(
+            Arrays.copyOf(data, data.length - 1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTruncatedVarInt() {
+    decode(frame(0x85));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOversizedCount() {
+    /* rule 1, count 0x7FFFFFFF, no results */
+    decode(frame(0x01, 0xFF, 0xFF, 0xFF, 0xFF, 0x07));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeVarInt() {
+    decode(frame(0xFF, 0xFF, 0xFF, 0xFF, 0x0F, 0x00));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOverlongVarInt() {
+    decode(frame(0x80, 0x80, 0x80, 0x80, 0x10, 0x00));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnterminatedVarInt() {
+    decode(frame(0x80, 0x80, 0x80, 0x80, 0x80, 0x00));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalBase64() {
+    decode("not base64!");
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package de.dfki.mlt.rudibugger.simulator;
+
+import static de.dfki.mlt.rudimant.common.Constants.*;
+
+import de.dfki.mlt.rudibugger.project.VondaRuntimeConnection;
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
+import de.dfki.mlt.rudibugger.rpc.LogData;
+import de.dfki.mlt.rudibugger.simulator.VondaSimulator.Distribution;
+import de.dfki.mlt.rudimant.common.SimpleServer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the {@link VondaSimulator} from the command line, without a GUI.
+ *
+ * By default, a headless <code>VondaRuntimeConnection</code> is connected to
+ * the simulator in the same process, and the throughput and end-to-end
+ * latency (from sending a log to its publication by the connection) are
+ * reported. With <code>--server-only</code>, the simulator waits for a
+ * running rudibugger instead and only reports how fast it could send.
+ *
+ * The simulator is a test tool and lives in the test sources. Run it with
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=de.dfki.mlt.rudibugger.simulator.SimulatorMain \
+ *     -Dexec.args="[options] &lt;RuleLoc.yml&gt;"
+ * </pre>
+ *
+ * Usage: <code>SimulatorMain [options] &lt;RuleLoc.yml&gt;</code>
+ * <pre>
+ *   --rudi-folder &lt;dir&gt;    the project's .rudi folder (default: the
+ *                           folder containing RuleLoc.yml)
+ *   --port &lt;port&gt;          the port to listen on
+ *   --events &lt;n&gt;           the number of logs to generate
+ *   --rate &lt;n&gt;             logs per second, 0 for unlimited (default 0)
+ *   --distribution uniform|zipf
+ *   --replay &lt;file&gt;        replay logs from a file instead
+ *   --frame &lt;n&gt;            the maximum number of logs per packed frame
+ *   --text                  never use the packed format
+ *   --server-only           wait for an external rudibugger
+ * </pre>
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class SimulatorMain {
+
+  /** The logger. */
+  static Logger log = LoggerFactory.getLogger("simulatorMain");
+
+  /** The time to wait for outstanding logs after sending, in ms. */
+  private static final long DRAIN_TIMEOUT = 10000;
+
+  /**
+   * Collects the end-to-end latencies of the logs published by a
+   * <code>VondaRuntimeConnection</code>. Logs are formatted and published in
+   * the order they were sent, so the n-th published log belongs to the n-th
+   * sent log as long as nothing was dropped.
+   */
+  private static class LatencyRecorder {
+
+    private final VondaSimulator _simulator;
+
+    private final long[] _latencies;
+
+    private volatile int _received = 0;
+
+    LatencyRecorder(VondaSimulator simulator, int capacity) {
+      _simulator = simulator;
+      _latencies = new long[capacity];
+    }
+
+    /** Called with every published batch. */
+    void published(List<LogData> batch) {
+      long now = System.nanoTime();
+      int received = _received;
+      for (int i = 0; i < batch.size() && received < _latencies.length; i++) {
+        _latencies[received] = now - _simulator.getSendTime(received);
+        received++;
+      }
+      _received = received;
+    }
+
+    int getReceived() { return _received; }
+
+    /** @return The given percentile of the latencies in ms */
+    double percentile(long[] sorted, double p) {
+      if (sorted.length == 0) return 0;
+      int i = (int) Math.ceil(p / 100 * sorted.length) - 1;
+      return sorted[Math.max(0, i)] / 1e6;
+    }
+
+    void report(long dropped) {
+      long[] sorted = Arrays.copyOf(_latencies, _received);
+      Arrays.sort(sorted);
+      log.info(String.format("Latency [ms]: p50 %.2f, p95 %.2f, p99 %.2f, "
+              + "max %.2f%s", percentile(sorted, 50), percentile(sorted, 95),
+              percentile(sorted, 99), percentile(sorted, 100),
+              dropped > 0 ? " (approximate, logs were dropped)" : ""));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Path ruleLocYaml = null;
+    Path rudiFolder = null;
+    int port = SimpleServer.DEFAULT_PORT;
+    int events = 1000000;
+    double rate = 0;
+    Distribution distribution = Distribution.UNIFORM;
+    Path replay = null;
+    int frameEvents = VondaSimulator.DEFAULT_FRAME_EVENTS;
+    boolean allowPacked = true;
+    boolean serverOnly = false;
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--rudi-folder": rudiFolder = Paths.get(args[++i]); break;
+        case "--port": port = Integer.parseInt(args[++i]); break;
+        case "--events": events = Integer.parseInt(args[++i]); break;
+        case "--rate": rate = Double.parseDouble(args[++i]); break;
+        case "--distribution":
+          distribution = Distribution.valueOf(args[++i].toUpperCase());
+          break;
+        case "--replay": replay = Paths.get(args[++i]); break;
+        case "--frame": frameEvents = Integer.parseInt(args[++i]); break;
+        case "--text": allowPacked = false; break;
+        case "--server-only": serverOnly = true; break;
+        default: ruleLocYaml = Paths.get(args[i]);
+      }
+    }
+    if (ruleLocYaml == null) {
+      System.err.println("Usage: SimulatorMain [options] <"
+              + RULE_LOCATION_FILE + ">");
+      System.exit(1);
+    }
+    if (rudiFolder == null) rudiFolder = ruleLocYaml.toAbsolutePath()
+            .getParent();
+
+    RuleModel ruleModel = RuleModel.createRuleModel(rudiFolder, ruleLocYaml);
+    if (ruleModel == null) {
+      log.error("Could not read " + ruleLocYaml);
+      System.exit(1);
+    }
+
+    List<String[]> replayed = null;
+    if (replay != null) {
+      try {
+        replayed = VondaSimulator.readReplay(replay);
+      } catch (IOException e) {
+        log.error("Could not replay logs: " + e.getMessage());
+        System.exit(1);
+      }
+    }
+
+    VondaSimulator simulator
+            = new VondaSimulator(ruleModel, port, allowPacked);
+    simulator.setFrameEvents(frameEvents);
+    log.info("Simulating " + simulator.getRuleCount() + " rules on port "
+            + port + ".");
+
+    VondaRuntimeConnection connection = null;
+    LatencyRecorder recorder = new LatencyRecorder(simulator, events);
+    if (serverOnly) {
+      log.info("Waiting for rudibugger...");
+    } else {
+      connection = new VondaRuntimeConnection(ruleModel, Runnable::run);
+      connection.logBatchProperty().addListener((o, ov, nv) -> {
+        if (nv != null) recorder.published(nv);
+      });
+      connection.connect(port, null);
+    }
+    simulator.awaitConnection();
+    /* give rudibugger the time to send its logging states */
+    Thread.sleep(1000);
+
+    double seconds = (replayed != null)
+            ? simulator.replayLogs(replayed, events, rate)
+            : simulator.sendLogs(events, rate, distribution);
+    int sent = simulator.getSent();
+    log.info(String.format("Sent %d logs (%s, %d suppressed) in %.2f s: "
+            + "%.0f logs/s", sent, simulator.isPacked() ? "packed" : "text",
+            simulator.getSuppressed(), seconds, sent / seconds));
+
+    if (connection != null) {
+      long start = System.currentTimeMillis();
+      while (recorder.getReceived() + connection.getDroppedLogs() < sent
+              && System.currentTimeMillis() - start < DRAIN_TIMEOUT) {
+        Thread.sleep(10);
+      }
+      double total = seconds + (System.currentTimeMillis() - start) / 1e3;
+      log.info(String.format("Received %d logs (%d dropped) in %.2f s: "
+              + "%.0f logs/s", recorder.getReceived(),
+              connection.getDroppedLogs(), total,
+              recorder.getReceived() / total));
+      recorder.report(connection.getDroppedLogs());
+      connection.closeConnection();
+    }
+    simulator.shutdown();
+    System.exit(0);
+  }
+
+}
@@ -0,0 +1,453 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package de.dfki.mlt.rudibugger.simulator;
+
+import static de.dfki.mlt.rudibugger.rpc.PackedLogCodec.*;
+import static de.dfki.mlt.rudimant.common.Constants.*;
+
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleInfoExtended;
+import de.dfki.mlt.rudibugger.project.ruleModel.RuleModel;
+import de.dfki.mlt.rudibugger.rpc.LogStateSync;
+import de.dfki.mlt.rudibugger.rpc.PackedLogCodec.FrameWriter;
+import de.dfki.mlt.rudimant.common.SimpleServer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pure Java stand-in for VOnDA's runtime system. It speaks the protocol
+ * rudibugger's <code>RudibuggerClient</code> connects to and sends
+ * <code>printLog</code> traffic for the rules of a compiled project.
+ *
+ * The logged rules are either drawn from a distribution over all rules or
+ * replayed from a file. Like VOnDA, the simulator honours the
+ * <code>setLogStat</code> and <code>setLogStats</code> messages of
+ * rudibugger: logs of rules that should not be logged in their current state
+ * are suppressed. If rudibugger asks for
+ * it, logs are sent in the packed format.
+ *
+ * The time every log is sent is recorded, so that the end-to-end latency can
+ * be measured on the receiving side.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class VondaSimulator implements Consumer<String[]> {
+
+  /** The logger. */
+  static Logger log = LoggerFactory.getLogger("vondaSimulator");
+
+  /** The default maximum number of logs sent in one packed frame. */
+  public static final int DEFAULT_FRAME_EVENTS = 64;
+
+  /** The number of random result patterns kept per number of results. */
+  private static final int PATTERNS = 64;
+
+  /** Defines how the logged rules are chosen. */
+  public enum Distribution {
+    /** Every rule is logged equally often. */
+    UNIFORM,
+    /** A few rules are logged very often (Zipf distribution, s = 1). */
+    ZIPF
+  }
+
+
+  /* ***************************************************************************
+   * FIELDS
+   * **************************************************************************/
+
+  /** The server rudibugger connects to. */
+  private final SimpleServer _server;
+
+  /** The ids of all rules. */
+  private final int[] _ruleIds;
+
+  /** The number of results sent for every rule. */
+  private final int[] _resultLengths;
+
+  /** Maps rule ids to their position in the arrays. */
+  private final HashMap<Integer, Integer> _positions = new HashMap<>();
+
+  /** The logging state of every rule, as set by rudibugger. */
+  private final AtomicIntegerArray _states;
+
+  /** Random result patterns, by number of results. */
+  private final HashMap<Integer, boolean[][]> _patterns = new HashMap<>();
+
+  /** Indicates whether the packed format may be used at all. */
+  private final boolean _allowPacked;
+
+  /** The maximum number of logs sent in one packed frame. */
+  private int _frameEvents = DEFAULT_FRAME_EVENTS;
+
+  /** The version of the logging states set by setLogStats. */
+  private int _statesVersion = 0;
+
+  /** Indicates whether rudibugger asked for the packed format. */
+  private volatile boolean _packed = false;
+
+  /** Released when the first command of rudibugger has been received. */
+  private final CountDownLatch _connected = new CountDownLatch(1);
+
+  /** The times (System.nanoTime) the logs have been sent. */
+  private AtomicLongArray _sendTimes = new AtomicLongArray(0);
+
+  /** The number of logs sent. */
+  private volatile int _sent = 0;
+
+  /** The number of logs suppressed due to the logging states. */
+  private volatile int _suppressed = 0;
+
+
+  /* ***************************************************************************
+   * CONSTRUCTOR
+   * **************************************************************************/
+
+  /**
+   * Creates a new simulator and starts its server.
+   *
+   * @param ruleModel
+   *        The rules of the simulated project
+   * @param port
+   *        The port rudibugger connects to
+   * @param allowPacked
+   *        False, if only text logs should be sent
+   */
+  public VondaSimulator(RuleModel ruleModel, int port, boolean allowPacked) {
+    List<RuleInfoExtended> rules = new ArrayList<>();
+    for (int id : ruleModel.getRuleIds()) rules.add(ruleModel.getRule(id));
+    _ruleIds = new int[rules.size()];
+    _resultLengths = new int[rules.size()];
+    _states = new AtomicIntegerArray(rules.size());
+    for (int i = 0; i < rules.size(); i++) {
+      RuleInfoExtended rule = rules.get(i);
+      _ruleIds[i] = rule.getId();
+      String[] baseTerms = rule.getBaseterms();
+      _resultLengths[i] = 1 + (baseTerms == null ? 0 : baseTerms.length);
+      _positions.put(rule.getId(), i);
+      _states.set(i, STATE_ALWAYS);
+    }
+    _allowPacked = allowPacked;
+    _server = new SimpleServer(this, port, "VondaSimulator");
+    _server.startServer();
+  }
+
+
+  /* ***************************************************************************
+   * METHODS
+   * **************************************************************************/
+
+  /** Handles the commands sent by rudibugger. */
+  @Override
+  public void accept(String[] args) {
+    switch (args[0]) {
+      case PROTOCOL:
+        if (args.length == 3 && PACKED.equals(args[1]) && _allowPacked) {
+          _packed = true;
+          _server.send(PROTOCOL, PACKED, Integer.toString(VERSION));
+        } else if (args.length == 3
+                && LogStateSync.BULK_STATES.equals(args[1])) {
+          _server.send(PROTOCOL, LogStateSync.BULK_STATES,
+                  Integer.toString(LogStateSync.VERSION));
+        }
+        break;
+      case "setLogStat":
+        setLogStat(args);
+        break;
+      case LogStateSync.SET_LOG_STATS:
+        setLogStats(args);
+        break;
+      default:
+        log.debug("Ignoring command: " + Arrays.toString(args));
+    }
+    _connected.countDown();
+  }
+
+  /** Sets the logging state of a rule. */
+  private void setLogStat(String[] args) {
+    try {
+      Integer position = _positions.get(Integer.parseInt(args[1]));
+      if (position != null)
+        _states.set(position, Integer.parseInt(args[2]));
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      log.error("Illegal setLogStat: " + Arrays.toString(args));
+    }
+  }
+
+  /** Sets the logging states of many rules, see {@link LogStateSync}. */
+  private void setLogStats(String[] args) {
+    try {
+      int version = Integer.parseInt(args[1]);
+      int base = Integer.parseInt(args[2]);
+      if (base != 0 && base != _statesVersion) {
+        _server.send(LogStateSync.LOG_STATS_NACK, args[1]);
+        return;
+      }
+      if (base == 0)
+        for (int i = 0; i < _states.length(); i++)
+          _states.set(i, STATE_ALWAYS);
+      for (int i = 3; i < args.length; i++) {
+        LogStateSync.decode(args[i], (id, state) -> {
+          Integer position = _positions.get(id);
+          if (position != null) _states.set(position, state);
+        });
+      }
+      _statesVersion = version;
+      _server.send(LogStateSync.LOG_STATS_ACK, args[1]);
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      log.error("Illegal setLogStats: " + Arrays.toString(args));
+    }
+  }
+
+  /** Waits until rudibugger has connected. */
+  public void awaitConnection() throws InterruptedException {
+    _connected.await();
+  }
+
+  /** @return True, if a log should be sent according to the rule's state */
+  private boolean shouldLog(int position, boolean[] result) {
+    switch (_states.get(position)) {
+      case STATE_NEVER: return false;
+      case STATE_IF_TRUE: return result[0];
+      case STATE_IF_FALSE: return ! result[0];
+      default: return true;
+    }
+  }
+
+  /** @return Random results of the given length */
+  private boolean[] createResult(int length, Random random) {
+    boolean[][] patterns = _patterns.get(length);
+    if (patterns == null) {
+      patterns = new boolean[PATTERNS][length];
+      for (boolean[] pattern : patterns)
+        for (int i = 0; i < length; i++) pattern[i] = random.nextBoolean();
+      _patterns.put(length, patterns);
+    }
+    return patterns[random.nextInt(PATTERNS)];
+  }
+
+  /**
+   * Creates the positions of the rules to log.
+   *
+   * @param events
+   *        The number of logs
+   * @param distribution
+   *        How the logged rules are chosen
+   * @param random
+   *        The source of randomness
+   */
+  private int[] createSchedule(int events, Distribution distribution,
+          Random random) {
+    int[] schedule = new int[events];
+    if (distribution == Distribution.UNIFORM) {
+      for (int i = 0; i < events; i++)
+        schedule[i] = random.nextInt(_ruleIds.length);
+      return schedule;
+    }
+    double[] cumulative = new double[_ruleIds.length];
+    double sum = 0;
+    for (int i = 0; i < cumulative.length; i++) {
+      sum += 1.0 / (i + 1);
+      cumulative[i] = sum;
+    }
+    for (int i = 0; i < events; i++) {
+      int pos = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+      schedule[i] = Math.min(pos < 0 ? -pos - 1 : pos, _ruleIds.length - 1);
+    }
+    return schedule;
+  }
+
+  /**
+   * Reads logs to replay. Every line contains the arguments of a
+   * <code>printLog</code> command, i.e. the rule id and at least one result
+   * (<code>true</code> or <code>false</code>), separated by whitespace (the
+   * command name itself is optional). Empty lines are skipped.
+   *
+   * @param file
+   *        The file containing the logs
+   * @return The logs, every entry starting with the rule id
+   * @throws IOException
+   *        If the file can not be read or contains an illegal line
+   */
+  public static List<String[]> readReplay(Path file) throws IOException {
+    List<String[]> logs = new ArrayList<>();
+    int lineNumber = 0;
+    for (String line : Files.readAllLines(file)) {
+      lineNumber++;
+      String[] parts = line.trim().split("\\s+");
+      if (parts.length > 0 && "printLog".equals(parts[0]))
+        parts = Arrays.copyOfRange(parts, 1, parts.length);
+      if (parts.length == 0 || parts[0].isEmpty()) continue;
+      String error = checkReplayEntry(parts);
+      if (error != null)
+        throw new IOException(file + ":" + lineNumber + ": " + error);
+      logs.add(parts);
+    }
+    return logs;
+  }
+
+  /** @return A description of what is wrong with the entry, or null */
+  private static String checkReplayEntry(String[] entry) {
+    try {
+      Integer.parseInt(entry[0]);
+    } catch (NumberFormatException e) {
+      return "illegal rule id " + entry[0];
+    }
+    if (entry.length < 2) return "no results for rule " + entry[0];
+    for (int i = 1; i < entry.length; i++) {
+      if (! "true".equals(entry[i]) && ! "false".equals(entry[i]))
+        return "illegal result " + entry[i];
+    }
+    return null;
+  }
+
+  /**
+   * Sends logs of randomly chosen rules.
+   *
+   * @param events
+   *        The number of logs to generate (suppressed logs included)
+   * @param rate
+   *        The number of logs per second, or 0 to send as fast as possible
+   * @param distribution
+   *        How the logged rules are chosen
+   * @return The time needed in seconds
+   */
+  public double sendLogs(int events, double rate, Distribution distribution) {
+    if (_ruleIds.length == 0) return 0;
+    Random random = new Random(42);
+    int[] schedule = createSchedule(events, distribution, random);
+    int[] ids = new int[events];
+    boolean[][] results = new boolean[events][];
+    for (int i = 0; i < events; i++) {
+      ids[i] = _ruleIds[schedule[i]];
+      results[i] = createResult(_resultLengths[schedule[i]], random);
+    }
+    return send(ids, results, rate);
+  }
+
+  /**
+   * Sends the given logs, repeating them as often as needed.
+   *
+   * @param logs
+   *        The logs, as returned by {@link #readReplay(Path)}
+   * @param events
+   *        The number of logs to send (suppressed logs included)
+   * @param rate
+   *        The number of logs per second, or 0 to send as fast as possible
+   * @return The time needed in seconds
+   */
+  public double replayLogs(List<String[]> logs, int events, double rate) {
+    if (logs.isEmpty()) return 0;
+    int[] ids = new int[events];
+    boolean[][] results = new boolean[events][];
+    for (int i = 0; i < events; i++) {
+      String[] entry = logs.get(i % logs.size());
+      ids[i] = Integer.parseInt(entry[0]);
+      results[i] = new boolean[entry.length - 1];
+      for (int j = 1; j < entry.length; j++)
+        results[i][j - 1] = Boolean.parseBoolean(entry[j]);
+    }
+    return send(ids, results, rate);
+  }
+
+  /** Sends the given logs at the given rate. */
+  private double send(int[] ids, boolean[][] results, double rate) {
+    _sendTimes = new AtomicLongArray(ids.length);
+    _sent = 0;
+    _suppressed = 0;
+    FrameWriter frame = new FrameWriter();
+    long start = System.nanoTime();
+    for (int n = 0; n < ids.length; n++) {
+      if (rate > 0) {
+        long due = start + (long) (n * 1e9 / rate);
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+          if (frame.getEvents() > 0)
+            _server.send(PRINT_LOG_PACKED, frame.finish());
+          LockSupport.parkNanos(wait);
+        }
+      }
+      Integer position = _positions.get(ids[n]);
+      if (position != null && ! shouldLog(position, results[n])) {
+        _suppressed++;
+        continue;
+      }
+      _sendTimes.set(_sent, System.nanoTime());
+      _sent++;
+      if (_packed) {
+        frame.add(ids[n], results[n]);
+        if (frame.getEvents() >= _frameEvents)
+          _server.send(PRINT_LOG_PACKED, frame.finish());
+      } else {
+        String[] args = new String[results[n].length + 2];
+        args[0] = "printLog";
+        args[1] = Integer.toString(ids[n]);
+        for (int i = 0; i < results[n].length; i++)
+          args[i + 2] = Boolean.toString(results[n][i]);
+        _server.send(args);
+      }
+    }
+    if (frame.getEvents() > 0) _server.send(PRINT_LOG_PACKED, frame.finish());
+    return (System.nanoTime() - start) / 1e9;
+  }
+
+  /** Stops the server. */
+  public void shutdown() throws IOException {
+    _server.disconnect();
+  }
+
+
+  /* ***************************************************************************
+   * GETTERS AND SETTERS
+   * **************************************************************************/
+
+  /** @param frameEvents The maximum number of logs in one packed frame */
+  public void setFrameEvents(int frameEvents) { _frameEvents = frameEvents; }
+
+  /** @return True, if logs are sent in the packed format */
+  public boolean isPacked() { return _packed; }
+
+  /** @return The number of rules of the simulated project */
+  public int getRuleCount() { return _ruleIds.length; }
+
+  /** @return The number of logs sent during the last run */
+  public int getSent() { return _sent; }
+
+  /** @return The number of logs suppressed during the last run */
+  public int getSuppressed() { return _suppressed; }
+
+  /**
+   * @param index
+   *        The index of a sent log
+   * @return The time (System.nanoTime) the log has been sent
+   */
+  public long getSendTime(int index) { return _sendTimes.get(index); }
+
+}
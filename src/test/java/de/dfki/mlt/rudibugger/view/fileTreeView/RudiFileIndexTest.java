@@ -0,0 +1,165 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.view.fileTreeView;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the file index detects modified <code>.rudi</code> files by
+ * content, and that it survives being stored and read in again.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class RudiFileIndexTest {
+
+  /** An arbitrary modification time, in epoch milliseconds. */
+  private static final long T0 = 1_600_000_000_000L;
+
+  private Path _folder;
+
+  private Path _indexFile;
+
+  private Path _main;
+
+  private Path _other;
+
+  @Before
+  public void setUp() throws IOException {
+    _folder = Files.createTempDirectory("rudiFileIndex");
+    _indexFile = _folder.resolve("index").resolve("files.index");
+    _main = write("Main.rudi", "main content", T0);
+    _other = write("Other.rudi", "other content", T0);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(_folder)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  /** Writes a file in the test folder with the given modification time. */
+  private Path write(String name, String content, long modified)
+          throws IOException {
+    Path file = _folder.resolve(name);
+    Files.writeString(file, content);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    return file;
+  }
+
+  private RudiFileIndex compiledIndex() {
+    RudiFileIndex index = new RudiFileIndex(_folder, _indexFile);
+    index.setCompiled(new HashSet<>(Arrays.asList(_main, _other)));
+    return index;
+  }
+
+  @Test
+  public void testUnknownWithoutRuleLoc() {
+    RudiFileIndex index = new RudiFileIndex(_folder, _indexFile);
+    assertFalse(index.update(_main, -1));
+  }
+
+  @Test
+  public void testUnknownComparedToRuleLoc() throws IOException {
+    RudiFileIndex index = new RudiFileIndex(_folder, _indexFile);
+    assertTrue(index.update(_main, T0 - 1000));
+    assertFalse(index.update(_other, T0 + 1000));
+
+    /* the content at that time is taken as the compiled one */
+    write("Other.rudi", "other edited", T0 + 2000);
+    assertTrue(index.update(_other, T0 + 1000));
+  }
+
+  @Test
+  public void testRevertedEditIsInSync() throws IOException {
+    RudiFileIndex index = compiledIndex();
+    assertFalse(index.update(_main, -1));
+
+    write("Main.rudi", "main edited!", T0 + 1000);
+    assertTrue(index.update(_main, -1));
+
+    /* only the content counts, not the modification time */
+    write("Main.rudi", "main content", T0 + 2000);
+    assertFalse(index.update(_main, -1));
+  }
+
+  @Test
+  public void testSameSizeAndTimeIsNotHashed() throws IOException {
+    RudiFileIndex index = compiledIndex();
+    write("Main.rudi", "MAIN CONTENT", T0);
+    assertFalse(index.update(_main, 12, T0, -1));
+    assertTrue(index.update(_main, 12, T0 + 1, -1));
+  }
+
+  @Test
+  public void testSetCompiledForgetsOtherFiles() throws IOException {
+    RudiFileIndex index = compiledIndex();
+    write("Other.rudi", "other edited", T0 + 1000);
+    assertTrue(index.update(_other, -1));
+
+    index.setCompiled(Collections.singleton(_main));
+    assertFalse(index.update(_other, -1));
+  }
+
+  @Test
+  public void testStoreAndLoad() throws Exception {
+    compiledIndex().store().get();
+    assertTrue(Files.exists(_indexFile));
+
+    write("Main.rudi", "main edited!", T0 + 1000);
+    RudiFileIndex index = new RudiFileIndex(_folder, _indexFile);
+    assertTrue(index.update(_main, -1));
+    assertFalse(index.update(_other, -1));
+  }
+
+  @Test
+  public void testTruncatedIndex() throws Exception {
+    compiledIndex().store().get();
+    try (RandomAccessFile raf = new RandomAccessFile(_indexFile.toFile(),
+            "rw")) {
+      raf.setLength(raf.length() - 4);
+    }
+
+    /* nothing is known, so nothing is considered modified */
+    write("Main.rudi", "main edited!", T0 + 1000);
+    RudiFileIndex index = new RudiFileIndex(_folder, _indexFile);
+    assertFalse(index.update(_main, -1));
+  }
+
+  @Test
+  public void testMissingFile() {
+    RudiFileIndex index = compiledIndex();
+    assertTrue(index.update(_folder.resolve("Gone.rudi"), -1));
+  }
+
+}
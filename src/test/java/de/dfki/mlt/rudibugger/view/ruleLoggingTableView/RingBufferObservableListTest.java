@@ -0,0 +1,170 @@
+/*
+ * The Creative Commons CC-BY-NC 4.0 License
+ *
+ * http://creativecommons.org/licenses/by-nc/4.0/legalcode
+ *
+ * Creative Commons (CC) by DFKI GmbH
+ *  - Bernd Kiefer <kiefer@dfki.de>
+ *  - Anna Welker <anna.welker@dfki.de>
+ *  - Christophe Biwer <christophe.biwer@dfki.de>
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package de.dfki.mlt.rudibugger.view.ruleLoggingTableView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javafx.collections.ListChangeListener;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the insertion, eviction and replacement of elements and the changes
+ * fired by the ring buffer.
+ *
+ * @author Christophe Biwer (yoshegg) christophe.biwer@dfki.de
+ */
+public class RingBufferObservableListTest {
+
+  private RingBufferObservableList<Integer> _list;
+
+  /** A copy of the list that is only updated by the fired changes. */
+  private List<Integer> _mirror;
+
+  /** All elements removed by the fired changes. */
+  private List<Integer> _removed;
+
+  /** The number of fired changes. */
+  private int _changes;
+
+  @Before
+  public void setUp() {
+    _list = new RingBufferObservableList<>(4);
+    _mirror = new ArrayList<>();
+    _removed = new ArrayList<>();
+    _list.addListener((ListChangeListener<Integer>) c -> {
+      _changes++;
+      while (c.next()) {
+        if (c.wasRemoved()) {
+          _removed.addAll(c.getRemoved());
+          _mirror.subList(c.getFrom(), c.getFrom() + c.getRemovedSize())
+                  .clear();
+        }
+        if (c.wasAdded()) _mirror.addAll(c.getFrom(), c.getAddedSubList());
+      }
+    });
+  }
+
+  private void resetChanges() {
+    _removed.clear();
+    _changes = 0;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoCapacity() {
+    new RingBufferObservableList<Integer>(0);
+  }
+
+  @Test
+  public void testAddInFront() {
+    _list.add(1);
+    _list.add(0, 2);
+    _list.add(0, 3);
+    assertEquals(Arrays.asList(3, 2, 1), _list);
+    assertEquals(_list, _mirror);
+    assertEquals(3, _changes);
+    assertTrue(_removed.isEmpty());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAddElsewhere() {
+    _list.add(1);
+    _list.add(1, 2);
+  }
+
+  @Test
+  public void testAddEvictsOldest() {
+    _list.addAll(0, Arrays.asList(4, 3, 2, 1));
+    resetChanges();
+    _list.add(0, 5);
+    assertEquals(Arrays.asList(5, 4, 3, 2), _list);
+    assertEquals(_list, _mirror);
+    assertEquals(1, _changes);
+    assertEquals(Collections.singletonList(1), _removed);
+  }
+
+  @Test
+  public void testAddAllEvictsOldest() {
+    _list.addAll(0, Arrays.asList(3, 2, 1));
+    resetChanges();
+    _list.addAll(0, Arrays.asList(5, 4));
+    assertEquals(Arrays.asList(5, 4, 3, 2), _list);
+    assertEquals(_list, _mirror);
+    assertEquals(1, _changes);
+    assertEquals(Collections.singletonList(1), _removed);
+  }
+
+  @Test
+  public void testAddAllMoreThanCapacity() {
+    _list.addAll(0, Arrays.asList(2, 1));
+    resetChanges();
+    _list.addAll(0, Arrays.asList(8, 7, 6, 5, 4, 3));
+    assertEquals(Arrays.asList(8, 7, 6, 5), _list);
+    assertEquals(_list, _mirror);
+    assertEquals(1, _changes);
+    assertEquals(Arrays.asList(2, 1), _removed);
+  }
+
+  @Test
+  public void testAddAllNothing() {
+    assertFalse(_list.addAll(0, Collections.emptyList()));
+    assertEquals(0, _changes);
+  }
+
+  @Test
+  public void testSetAll() {
+    _list.addAll(0, Arrays.asList(3, 2, 1));
+    resetChanges();
+    _list.setAll(Arrays.asList(9, 8, 7, 6, 5));
+    assertEquals(Arrays.asList(9, 8, 7, 6), _list);
+    assertEquals(_list, _mirror);
+    assertEquals(1, _changes);
+    assertEquals(Arrays.asList(3, 2, 1), _removed);
+
+    /* the buffer keeps working after having been reset */
+    _list.add(0, 10);
+    assertEquals(Arrays.asList(10, 9, 8, 7), _list);
+    assertEquals(_list, _mirror);
+  }
+
+  @Test
+  public void testClear() {
+    _list.addAll(0, Arrays.asList(6, 5, 4, 3, 2, 1));
+    resetChanges();
+    _list.clear();
+    assertTrue(_list.isEmpty());
+    assertEquals(_list, _mirror);
+    assertEquals(1, _changes);
+    assertEquals(Arrays.asList(6, 5, 4, 3), _removed);
+
+    _list.clear();
+    assertEquals(1, _changes);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGetBeyondSize() {
+    _list.addAll(0, Arrays.asList(2, 1));
+    _list.get(2);
+  }
+
+}